@@ -0,0 +1,32 @@
+package ansi;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import util.SourceGenerator;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class AnsiParserBenchmark {
+	@Param({ "1000", "10000", "100000" })
+	private int lines;
+	
+	private AnsiParser parser;
+	private String output;
+	
+	@Setup
+	public void setup() {
+		parser = new AnsiParser();
+		output = SourceGenerator.ansiOutput(lines);
+	}
+	
+	@Benchmark
+	public ParseResult parseText() {
+		return parser.parseText(new AnsiStyle(), output);
+	}
+}
@@ -0,0 +1,50 @@
+package compiler;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.Benchmark;
+
+import com.google.common.base.Optional;
+
+import util.SourceGenerator;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BracketMatcherBenchmark {
+	@Param({ "1000", "10000", "100000" })
+	private int lines;
+	
+	private BracketMatcher bracketMatcher;
+	private String source;
+	private int classStart;
+	private int classEnd;
+	
+	@Setup
+	public void setup() {
+		bracketMatcher = new BracketMatcher();
+		source = SourceGenerator.javaSource(lines);
+		classStart = source.indexOf('{');
+		classEnd = source.lastIndexOf('}');
+	}
+	
+	/**
+	 * Matches the brace at the start of the class, which scans forward through the whole source.
+	 */
+	@Benchmark
+	public Optional<Integer> matchForward() {
+		return bracketMatcher.getMatchingParen(source, classStart);
+	}
+	
+	/**
+	 * Matches the brace at the end of the class, which scans backward through the whole source.
+	 */
+	@Benchmark
+	public Optional<Integer> matchBackward() {
+		return bracketMatcher.getMatchingParen(source, classEnd);
+	}
+}
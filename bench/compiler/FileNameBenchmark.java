@@ -0,0 +1,56 @@
+package compiler;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.Benchmark;
+
+import util.SourceGenerator;
+import util.StringUtil;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FileNameBenchmark {
+	@Param({ "1000", "10000", "100000" })
+	private int lines;
+	
+	private Language java;
+	private SourceScanner scanner;
+	private String source;
+	
+	@Setup
+	public void setup() {
+		java = Languages.getLanguage("Java");
+		scanner = new SourceScanner(new CommentSyntax("//", "/*", "*/"));
+		source = SourceGenerator.javaSource(lines);
+	}
+	
+	/**
+	 * Finds the name of the class with the main method for a source that has already been scanned, as
+	 * happens when the same source is run again.
+	 */
+	@Benchmark
+	public String getFileName() {
+		return java.getFileName(source);
+	}
+	
+	/**
+	 * Scans the source for the class with the main method, which is at the end of the source, and its dependencies.
+	 */
+	@Benchmark
+	public SourceScanner.Scan scan() {
+		return scanner.scan(source);
+	}
+	
+	/**
+	 * Finds the word before the end of the source, as completion does for the word before the caret.
+	 */
+	@Benchmark
+	public String match() {
+		return StringUtil.match(source, "[\\w_]+$");
+	}
+}
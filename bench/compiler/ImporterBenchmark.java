@@ -0,0 +1,39 @@
+package compiler;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.Benchmark;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ImporterBenchmark {
+	/** The classpath to search, which by default is every jar that ScratchPad is built with. */
+	@Param({ "lib/*" })
+	private String classpath;
+	
+	@Param({ "List", "Str" })
+	private String className;
+	
+	private Importer importer;
+	
+	@Setup
+	public void setup() {
+		List<String> jars = Importer.getJarsInClasspath(classpath);
+		if(jars.isEmpty()) {
+			throw new IllegalStateException("No jars found in " + classpath);
+		}
+		importer = new Importer(jars);
+	}
+	
+	@Benchmark
+	public Set<String> findImports() {
+		return importer.findImports(className);
+	}
+}
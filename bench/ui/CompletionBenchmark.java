@@ -0,0 +1,38 @@
+package ui;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import util.SourceGenerator;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CompletionBenchmark {
+	@Param({ "1000", "10000", "100000" })
+	private int lines;
+	
+	private String prefix;
+	private String suffix;
+	
+	/**
+	 * Places the caret after "tot" in the middle of the source.
+	 */
+	@Setup
+	public void setup() {
+		String source = SourceGenerator.javaSource(lines);
+		int caret = source.indexOf("total", source.length() / 2) + 3;
+		prefix = source.substring(0, caret);
+		suffix = source.substring(caret);
+	}
+	
+	@Benchmark
+	public List<String> findCompletions() {
+		return Completion.findCompletions(prefix, suffix);
+	}
+}
@@ -0,0 +1,40 @@
+package ui;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import compiler.Languages;
+import syntaxhighlighter.SyntaxHighlighterParser;
+import syntaxhighlighter.brush.Brush;
+import syntaxhighlight.ParseResult;
+import util.SourceGenerator;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SyntaxHighlightingBenchmark {
+	@Param({ "1000", "10000", "100000" })
+	private int lines;
+	
+	private Brush brush;
+	private String source;
+	
+	@Setup
+	public void setup() {
+		brush = Languages.getLanguage("Java").getBrush();
+		source = SourceGenerator.javaSource(lines);
+	}
+	
+	/**
+	 * Parses the source with the Java brush, as the editor does on every change.
+	 */
+	@Benchmark
+	public List<ParseResult> parse() {
+		return new SyntaxHighlighterParser(brush).parse(null, source);
+	}
+}
@@ -0,0 +1,63 @@
+package util;
+
+/**
+ * Generates realistic inputs of a given number of lines for the benchmarks.
+ */
+public class SourceGenerator {
+	/** The lines of a method, where # is replaced by the number of the method. */
+	private static final String[] METHOD_LINES = {
+		"\t/**",
+		"\t * Returns the total of the values in the range, skipping those filtered out (see #).",
+		"\t */",
+		"\tprivate long total#(List<Integer> values, int start, int end) {",
+		"\t\tlong total = 0;",
+		"\t\tfor(int i = start; i < end && i < values.size(); i++) {",
+		"\t\t\tif(values.get(i) % 3 != 0 || names.containsKey(\"value #\")) {",
+		"\t\t\t\ttotal += values.get(i) * (i + #);",
+		"\t\t\t}",
+		"\t\t}",
+		"\t\t// Log the total with a <tag> and [brackets] in the comment.",
+		"\t\tSystem.out.println(String.format(\"total#: %d\", total));",
+		"\t\treturn total;",
+		"\t}",
+		""
+	};
+
+	/**
+	 * Returns the source of a Java class with about the given number of lines, with its main method at the end.
+	 */
+	public static String javaSource(int lines) {
+		StringBuilder source = new StringBuilder();
+		source.append("import java.util.*;\n\n");
+		source.append("public class Main {\n");
+		source.append("\tprivate final Map<String, Integer> names = new HashMap<>();\n\n");
+
+		// Leave room for the main method and the end of the class.
+		for(int method = 0, count = 5; count + METHOD_LINES.length + 4 <= lines; method++, count += METHOD_LINES.length) {
+			for(String line:METHOD_LINES) {
+				source.append(line.replace("#", String.valueOf(method))).append('\n');
+			}
+		}
+
+		source.append("\tpublic static void main(String[] args) {\n");
+		source.append("\t\tnew Main().total0(Arrays.asList(1, 2, 3), 0, 3);\n");
+		source.append("\t}\n");
+		source.append("}\n");
+		return source.toString();
+	}
+
+	/**
+	 * Returns program output with the given number of lines, where every fourth line is colored with ANSI escape sequences.
+	 */
+	public static String ansiOutput(int lines) {
+		StringBuilder output = new StringBuilder();
+		for(int i = 0; i < lines; i++) {
+			if(i % 4 == 0) {
+				output.append("\u001B[1;3" + (i % 8) + "mline " + i + "\u001B[0m: some output with a value of " + (i * 31) + "\n");
+			} else {
+				output.append("line " + i + ": some output with a value of " + (i * 31) + "\n");
+			}
+		}
+		return output.toString();
+	}
+}
@@ -0,0 +1,449 @@
+package batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.GnuParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import compiler.Compiler;
+import compiler.Language;
+import compiler.Languages;
+import compiler.RunStats;
+import ui.Callback;
+
+/**
+ * Runs files or directories of snippets through the same compile and run pipeline as the editor
+ * without a user interface, several at a time. The output of each snippet is written to files in
+ * an output directory along with a JSON summary of the exit codes and timings.
+ */
+public class BatchRunner {
+	private final File outputDir;
+	private final Language language;
+	private final String classpath;
+	private final int jobs;
+
+	private final Set<String> outputNames = new HashSet<>();
+
+	/**
+	 * The result of running a single snippet.
+	 */
+	public static class Result {
+		private final File file;
+		private final String outputName;
+		private final Language language;
+		private final String status;
+		private final long wallMillis;
+		private final RunStats stats;
+
+		public Result(File file, String outputName, Language language, String status, long wallMillis, RunStats stats) {
+			this.file = file;
+			this.outputName = outputName;
+			this.language = language;
+			this.status = status;
+			this.wallMillis = wallMillis;
+			this.stats = stats;
+		}
+
+		public File getFile() {
+			return file;
+		}
+
+		public Language getLanguage() {
+			return language;
+		}
+
+		/**
+		 * Returns "ok", "failed" if the program exited with an error, "compile-error" if a setup or compile
+		 * step failed, "error" if the program couldn't be run, or "unknown-language".
+		 */
+		public String getStatus() {
+			return status;
+		}
+
+		public boolean isOk() {
+			return status.equals("ok");
+		}
+
+		public long getWallMillis() {
+			return wallMillis;
+		}
+
+		/**
+		 * Returns the stats of the run, or null if it wasn't run.
+		 */
+		public RunStats getStats() {
+			return stats;
+		}
+	}
+
+	/**
+	 * Creates a batch runner.
+	 * @param outputDir the directory to write the output and summary to.
+	 * @param language the language to run every snippet as, or null to choose it from the file extension.
+	 * @param classpath the classpath to use, or null to use the default classpath of each language.
+	 * @param jobs the number of snippets to run at once.
+	 */
+	public BatchRunner(File outputDir, Language language, String classpath, int jobs) {
+		this.outputDir = outputDir;
+		this.language = language;
+		this.classpath = classpath;
+		this.jobs = jobs;
+	}
+
+	public static void main(String[] args) {
+		System.setProperty("line.separator", "\n");
+
+		CommandLineParser parser = new GnuParser();
+
+		Options options = new Options();
+		options.addOption(new Option("l", "language", true, "run every file as a language by name instead of by extension"));
+		options.addOption(new Option("o", "output", true, "the directory to write output and summary.json to (default batch-output)"));
+		options.addOption(new Option("j", "jobs", true, "the number of files to run at once (default the number of processors)"));
+		options.addOption(new Option("cp", "classpath", true, "sets the classpath to use when compiling/running java programs"));
+		options.addOption(new Option("h", "help", false, "show help"));
+
+		String usage = "java -jar scratchpad.jar --batch [options] file|directory...";
+
+		int exitValue;
+
+		try {
+			CommandLine command = parser.parse(options, args);
+
+			if(command.hasOption("h") || command.getArgs().length == 0) {
+				new HelpFormatter().printHelp(usage, options);
+				System.exit(0);
+			}
+
+			Language language = null;
+			if(command.hasOption("l")) {
+				language = Languages.getLanguage(command.getOptionValue("l"));
+				if(language == null) {
+					throw new IllegalArgumentException("Unknown language: " + command.getOptionValue("l"));
+				}
+			}
+
+			File outputDir = new File(command.getOptionValue("o", "batch-output"));
+			int jobs = Integer.parseInt(command.getOptionValue("j", String.valueOf(Runtime.getRuntime().availableProcessors())));
+			if(jobs < 1) {
+				throw new IllegalArgumentException("Jobs must be at least 1");
+			}
+
+			List<File> files = new ArrayList<>();
+			for(String arg:command.getArgs()) {
+				files.add(new File(arg));
+			}
+
+			BatchRunner runner = new BatchRunner(outputDir, language, command.getOptionValue("cp"), jobs);
+			exitValue = runner.run(files) ? 0 : 1;
+		} catch(Throwable e) {
+			// Print usage and exit on any error.
+			System.err.println(e.getMessage());
+			new HelpFormatter().printHelp(usage, options);
+			exitValue = 2;
+		}
+
+		// Exit even if a language has left a process pool running.
+		System.exit(exitValue);
+	}
+
+	/**
+	 * Runs the snippets in files and directories, writes the summary, and returns whether they all succeeded.
+	 */
+	public boolean run(List<File> paths) throws IOException, InterruptedException {
+		long start = System.nanoTime();
+
+		List<Callable<Result>> tasks = new ArrayList<>();
+		for(File path:paths) {
+			if(path.isDirectory()) {
+				for(File file:listFiles(path)) {
+					Language language = getLanguage(file);
+					if(language != null) {
+						tasks.add(createTask(file, getOutputName(path.toPath().relativize(file.toPath()).toString()), language));
+					}
+				}
+			} else if(path.isFile()) {
+				tasks.add(createTask(path, getOutputName(path.getName()), getLanguage(path)));
+			} else {
+				throw new IOException("File not found: " + path);
+			}
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(jobs, new ThreadFactoryBuilder().setDaemon(true).build());
+
+		List<Result> results = new ArrayList<>();
+		try {
+			for(Future<Result> future:executor.invokeAll(tasks)) {
+				try {
+					results.add(future.get());
+				} catch(ExecutionException e) {
+					throw new IOException(e.getCause());
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		long wallMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		writeSummary(new File(outputDir, "summary.json"), results, wallMillis);
+
+		int passed = 0;
+		for(Result result:results) {
+			if(result.isOk()) {
+				passed++;
+			}
+		}
+
+		System.out.println(passed + " of " + results.size() + " passed in " + wallMillis + "ms, summary written to " + new File(outputDir, "summary.json"));
+
+		return passed == results.size();
+	}
+
+	private Callable<Result> createTask(final File file, final String outputName, final Language language) {
+		return new Callable<Result>() {
+			public Result call() throws Exception {
+				Result result = runFile(file, outputName, language);
+				synchronized(System.out) {
+					System.out.println(String.format("%-16s %6dms  %s", result.getStatus(), result.getWallMillis(), file));
+				}
+				return result;
+			}
+		};
+	}
+
+	/**
+	 * Runs a single snippet, writing its stdout, stderr and info output to files named after outputName.
+	 */
+	private Result runFile(File file, String outputName, Language language) throws IOException, InterruptedException {
+		if(language == null) {
+			return new Result(file, outputName, null, "unknown-language", 0, null);
+		}
+
+		String contents = FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+
+		// Use a file alongside the snippet as its input, or close the input straight away so that reads don't block.
+		File inputFile = new File(file.getPath() + ".in");
+
+		FileAppender out = new FileAppender(new File(outputDir, outputName + ".out"));
+		FileAppender err = new FileAppender(new File(outputDir, outputName + ".err"));
+		FileAppender info = new FileAppender(new File(outputDir, outputName + ".info"));
+
+		long start = System.nanoTime();
+
+		Compiler compiler = new Compiler(language, (classpath == null) ? language.getDefaultClasspath() : classpath);
+		if(inputFile.isFile()) {
+			compiler.setInputFile(inputFile);
+		}
+		
+		Compiler.Run run = compiler.runFile(contents, "", out, err, info, new Callback<Void>() {
+			public void onCallback(Void param) {
+			}
+		});
+
+		try {
+			run.get();
+		} catch(ExecutionException e) {
+			info.append("ERROR: Exception running program: " + e.getCause().getMessage() + "\n");
+		} finally {
+			out.close();
+			err.close();
+			info.close();
+		}
+
+		long wallMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		for(FileAppender appender:Arrays.asList(out, err, info)) {
+			if(appender.getException() != null) {
+				throw appender.getException();
+			}
+		}
+
+		return new Result(file, outputName, language, getStatus(run.getStats()), wallMillis, run.getStats());
+	}
+
+	/**
+	 * Returns the status of a run from the exit values of its processes.
+	 */
+	private static String getStatus(RunStats stats) {
+		for(RunStats.ProcessStats process:stats.getProcesses()) {
+			if(!process.getName().equals("run") && (process.getExitValue() == null || process.getExitValue() != 0)) {
+				return "compile-error";
+			}
+		}
+
+		RunStats.ProcessStats program = stats.getProgram();
+		if(program == null || program.getExitValue() == null) {
+			return "error";
+		} else if(program.getExitValue() != 0) {
+			return "failed";
+		} else {
+			return "ok";
+		}
+	}
+
+	/**
+	 * Returns the language to run a file as.
+	 */
+	private Language getLanguage(File file) {
+		return (language != null) ? language : Languages.getLanguageForExtension(FilenameUtils.getExtension(file.getName()));
+	}
+
+	/**
+	 * Returns a unique name for the output files of a snippet.
+	 */
+	private synchronized String getOutputName(String name) {
+		String outputName = name;
+		for(int x = 2; !outputNames.add(outputName); x++) {
+			outputName = name + "-" + x;
+		}
+		return outputName;
+	}
+
+	/**
+	 * Returns the files in a directory and its subdirectories, skipping hidden files, in a consistent order.
+	 */
+	private static List<File> listFiles(File dir) {
+		List<File> files = new ArrayList<>();
+		File[] children = dir.listFiles();
+		if(children != null) {
+			Arrays.sort(children);
+			for(File child:children) {
+				if(child.getName().startsWith(".")) {
+					continue;
+				} else if(child.isDirectory()) {
+					files.addAll(listFiles(child));
+				} else {
+					files.add(child);
+				}
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * Writes the results as JSON.
+	 */
+	private static void writeSummary(File file, List<Result> results, long wallMillis) throws IOException {
+		int passed = 0;
+		for(Result result:results) {
+			if(result.isOk()) {
+				passed++;
+			}
+		}
+
+		StringBuilder json = new StringBuilder();
+		json.append("{\n");
+		json.append("  \"total\": " + results.size() + ",\n");
+		json.append("  \"passed\": " + passed + ",\n");
+		json.append("  \"failed\": " + (results.size() - passed) + ",\n");
+		json.append("  \"wallMillis\": " + wallMillis + ",\n");
+		json.append("  \"results\": [");
+
+		for(int i = 0; i < results.size(); i++) {
+			json.append((i == 0) ? "\n" : ",\n");
+			json.append("    " + toJson(results.get(i)));
+		}
+
+		json.append("\n  ]\n}\n");
+
+		FileUtils.write(file, json, StandardCharsets.UTF_8);
+	}
+
+	private static String toJson(Result result) {
+		Map<String, Object> fields = new LinkedHashMap<>();
+		fields.put("file", result.getFile().getPath());
+		fields.put("language", (result.getLanguage() == null) ? null : result.getLanguage().getName());
+		fields.put("status", result.getStatus());
+
+		if(result.getStats() != null) {
+			RunStats.ProcessStats program = result.getStats().getProgram();
+
+			fields.put("exitValue", (program == null) ? null : program.getExitValue());
+			fields.put("wallMillis", result.getWallMillis());
+
+			Map<String, Object> phases = new LinkedHashMap<>();
+			for(RunStats.Phase phase:result.getStats().getPhases()) {
+				phases.put(phase.getName(), phase.getMillis());
+			}
+			fields.put("phases", phases);
+
+			if(program != null) {
+				fields.put("cpuMillis", program.getCpuMillis());
+				fields.put("peakRssKb", program.getPeakRssKb());
+				fields.put("outputBytes", program.getOutputBytes());
+				fields.put("outputLines", program.getOutputLines());
+			}
+
+			fields.put("stdout", result.outputName + ".out");
+			fields.put("stderr", result.outputName + ".err");
+			fields.put("info", result.outputName + ".info");
+		}
+
+		return toJson(fields);
+	}
+
+	/**
+	 * Returns a map of strings, numbers, nulls and maps as a single line of JSON.
+	 */
+	static String toJson(Map<String, Object> fields) {
+		StringBuilder json = new StringBuilder("{");
+		for(Map.Entry<String, Object> entry:fields.entrySet()) {
+			if(json.length() > 1) {
+				json.append(", ");
+			}
+
+			json.append(quote(entry.getKey()) + ": ");
+
+			Object value = entry.getValue();
+			if(value instanceof Map) {
+				@SuppressWarnings("unchecked")
+				Map<String, Object> map = (Map<String, Object>) value;
+				json.append(toJson(map));
+			} else if(value instanceof String) {
+				json.append(quote((String) value));
+			} else {
+				json.append(value);
+			}
+		}
+		return json.append("}").toString();
+	}
+
+	/**
+	 * Returns a string as a quoted JSON string.
+	 */
+	static String quote(String s) {
+		StringBuilder quoted = new StringBuilder("\"");
+		for(char c:s.toCharArray()) {
+			if(c == '"' || c == '\\') {
+				quoted.append('\\').append(c);
+			} else if(c < 0x20) {
+				quoted.append(String.format("\\u%04x", (int) c));
+			} else {
+				quoted.append(c);
+			}
+		}
+		return quoted.append("\"").toString();
+	}
+}
@@ -0,0 +1,55 @@
+package batch;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import compiler.Appender;
+
+/**
+ * Writes text to a file as it is appended.
+ */
+public class FileAppender implements Appender {
+	private final Writer writer;
+	private IOException exception = null;
+
+	public FileAppender(File file) throws IOException {
+		file.getParentFile().mkdirs();
+		this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+	}
+
+	public synchronized void append(String s) {
+		append(s.toCharArray(), 0, s.length());
+	}
+
+	public synchronized void append(char[] chars, int offset, int length) {
+		if(exception != null) return;
+
+		try {
+			writer.write(chars, offset, length);
+		} catch(IOException e) {
+			exception = e;
+		}
+	}
+
+	public synchronized void close() {
+		try {
+			writer.close();
+		} catch(IOException e) {
+			if(exception == null) {
+				exception = e;
+			}
+		}
+	}
+
+	/**
+	 * Returns the first exception writing the file, or null if it was written successfully.
+	 */
+	public synchronized IOException getException() {
+		return exception;
+	}
+}
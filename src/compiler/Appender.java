@@ -1,6 +1,26 @@
 package compiler;
 
 public interface Appender {
+	/** An appender that discards everything appended to it. */
+	public static final Appender NULL = new Appender() {
+		public void append(String s) {
+		}
+
+		public void append(char[] chars, int offset, int length) {
+		}
+
+		public void close() {
+		}
+	};
+
 	public void append(String s);
 	public void close();
+
+	/**
+	 * Appends a range of characters. The array may be reused after this returns, so
+	 * implementations must copy any characters they keep.
+	 */
+	public default void append(char[] chars, int offset, int length) {
+		append(new String(chars, offset, length));
+	}
 }
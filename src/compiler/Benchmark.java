@@ -0,0 +1,274 @@
+package compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The settings and samples of a benchmark, which runs a compiled program a number of times to warm
+ * up, and then a number of times measuring the wall time and CPU time of each run. The settings can
+ * be set in the source with a directive such as "// BENCHMARK: warmup=3 runs=20 outliers=discard".
+ */
+public class Benchmark {
+	private static final Pattern DIRECTIVE_PATTERN = Pattern.compile("(?://|#|--|%) BENCHMARK: (.*)");
+	private static final Pattern SETTING_PATTERN = Pattern.compile("(\\w+)=(\\w+)");
+
+	private static final int DEFAULT_WARMUP = 3;
+	private static final int DEFAULT_RUNS = 20;
+
+	private final int warmup;
+	private final int runs;
+	private final boolean discardOutliers;
+
+	private final List<Sample> samples = new ArrayList<>();
+
+	/**
+	 * Creates a benchmark with no samples.
+	 * @param warmup the number of runs before the measured runs, which aren't included in the statistics.
+	 * @param runs the number of measured runs.
+	 * @param discardOutliers whether to leave outliers out of the statistics.
+	 */
+	public Benchmark(int warmup, int runs, boolean discardOutliers) {
+		this.warmup = warmup;
+		this.runs = runs;
+		this.discardOutliers = discardOutliers;
+	}
+
+	/**
+	 * Returns a benchmark with the default settings overridden by any directives in the source.
+	 */
+	public static Benchmark fromDirectives(String contents) {
+		int warmup = DEFAULT_WARMUP;
+		int runs = DEFAULT_RUNS;
+		boolean discardOutliers = false;
+
+		Matcher directiveMatcher = DIRECTIVE_PATTERN.matcher(contents);
+		while(directiveMatcher.find()) {
+			Matcher settingMatcher = SETTING_PATTERN.matcher(directiveMatcher.group(1));
+			while(settingMatcher.find()) {
+				String value = settingMatcher.group(2);
+				switch(settingMatcher.group(1)) {
+					case "warmup": warmup = parseCount(value, warmup); break;
+					case "runs": runs = Math.max(1, parseCount(value, runs)); break;
+					case "outliers": discardOutliers = value.equals("discard"); break;
+				}
+			}
+		}
+
+		return new Benchmark(warmup, runs, discardOutliers);
+	}
+
+	private static int parseCount(String value, int defaultValue) {
+		try {
+			return Math.max(0, Integer.parseInt(value));
+		} catch(NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * The timings of a single run of the program.
+	 */
+	public static class Sample {
+		private final int run;
+		private final boolean warmup;
+		private final long wallNanos;
+		private final long cpuMillis;
+		private final long peakRssKb;
+
+		public Sample(int run, boolean warmup, long wallNanos, long cpuMillis, long peakRssKb) {
+			this.run = run;
+			this.warmup = warmup;
+			this.wallNanos = wallNanos;
+			this.cpuMillis = cpuMillis;
+			this.peakRssKb = peakRssKb;
+		}
+
+		/**
+		 * Returns the number of the run, counting from 1 for the first warm-up run.
+		 */
+		public int getRun() {
+			return run;
+		}
+
+		public boolean isWarmup() {
+			return warmup;
+		}
+
+		public double getWallMillis() {
+			return wallNanos / 1e6;
+		}
+
+		/**
+		 * Returns the CPU time sampled from the process, or -1 if it couldn't be sampled.
+		 */
+		public long getCpuMillis() {
+			return cpuMillis;
+		}
+
+		/**
+		 * Returns the peak resident set size in kilobytes, or -1 if it couldn't be sampled.
+		 */
+		public long getPeakRssKb() {
+			return peakRssKb;
+		}
+	}
+
+	public int getWarmup() {
+		return warmup;
+	}
+
+	public int getRuns() {
+		return runs;
+	}
+
+	public boolean isDiscardOutliers() {
+		return discardOutliers;
+	}
+
+	public synchronized void addSample(Sample sample) {
+		samples.add(sample);
+	}
+
+	public synchronized List<Sample> getSamples() {
+		return new ArrayList<>(samples);
+	}
+
+	/**
+	 * Returns the statistics of the wall time in milliseconds of the measured runs.
+	 */
+	public Statistics getWallStatistics() {
+		List<Double> times = new ArrayList<>();
+		for(Sample sample:getSamples()) {
+			if(!sample.isWarmup()) {
+				times.add(sample.getWallMillis());
+			}
+		}
+		return filter(new Statistics(times));
+	}
+
+	/**
+	 * Returns the statistics of the CPU time in milliseconds of the measured runs where it could be sampled.
+	 */
+	public Statistics getCpuStatistics() {
+		List<Double> times = new ArrayList<>();
+		for(Sample sample:getSamples()) {
+			if(!sample.isWarmup() && sample.getCpuMillis() >= 0) {
+				times.add((double) sample.getCpuMillis());
+			}
+		}
+		return filter(new Statistics(times));
+	}
+
+	private Statistics filter(Statistics statistics) {
+		return discardOutliers ? statistics.withoutOutliers() : statistics;
+	}
+
+	/**
+	 * Returns a table of the statistics of the measured runs.
+	 */
+	public String format() {
+		List<Sample> samples = getSamples();
+
+		int warmupRuns = 0;
+		for(Sample sample:samples) {
+			if(sample.isWarmup()) {
+				warmupRuns++;
+			}
+		}
+		int measuredRuns = samples.size() - warmupRuns;
+
+		Statistics wall = getWallStatistics();
+		Statistics cpu = getCpuStatistics();
+
+		StringBuilder table = new StringBuilder();
+		table.append("Benchmark: " + warmupRuns + " warm-up, " + measuredRuns + " measured");
+		if(discardOutliers) {
+			table.append(", " + (measuredRuns - wall.getCount()) + " wall time outliers discarded");
+		}
+		table.append("\n");
+
+		String format = "%-4s  %9s  %9s  %9s  %9s  %9s  %9s\n";
+		table.append(String.format(format, "", "min", "median", "mean", "p90", "p99", "stddev"));
+		table.append(formatRow(format, "wall", wall));
+		if(cpu.getCount() > 0) {
+			table.append(formatRow(format, "cpu", cpu));
+		}
+
+		return table.toString();
+	}
+
+	private static String formatRow(String format, String name, Statistics statistics) {
+		return String.format(format, name,
+			formatMillis(statistics.getMin()),
+			formatMillis(statistics.getMedian()),
+			formatMillis(statistics.getMean()),
+			formatMillis(statistics.getPercentile(90)),
+			formatMillis(statistics.getPercentile(99)),
+			formatMillis(statistics.getStandardDeviation()));
+	}
+
+	private static String formatMillis(double millis) {
+		return Double.isNaN(millis) ? "-" : String.format(Locale.ROOT, "%.2fms", millis);
+	}
+
+	/**
+	 * Returns the samples as CSV, with a header row.
+	 */
+	public String toCsv() {
+		StringBuilder csv = new StringBuilder("run,warmup,wall_ms,cpu_ms,peak_rss_kb\n");
+		for(Sample sample:getSamples()) {
+			csv.append(sample.getRun() + "," + sample.isWarmup() + "," + formatNumber(sample.getWallMillis()) + ","
+				+ ((sample.getCpuMillis() < 0) ? "" : sample.getCpuMillis()) + ","
+				+ ((sample.getPeakRssKb() < 0) ? "" : sample.getPeakRssKb()) + "\n");
+		}
+		return csv.toString();
+	}
+
+	/**
+	 * Returns the settings, samples and statistics as JSON.
+	 */
+	public String toJson() {
+		StringBuilder json = new StringBuilder("{\n");
+		json.append("  \"warmup\": " + warmup + ",\n");
+		json.append("  \"runs\": " + runs + ",\n");
+		json.append("  \"discardOutliers\": " + discardOutliers + ",\n");
+		json.append("  \"wall\": " + toJson(getWallStatistics()) + ",\n");
+		json.append("  \"cpu\": " + toJson(getCpuStatistics()) + ",\n");
+		json.append("  \"samples\": [");
+
+		List<Sample> samples = getSamples();
+		for(int i = 0; i < samples.size(); i++) {
+			Sample sample = samples.get(i);
+			json.append((i == 0) ? "\n" : ",\n");
+			json.append("    {\"run\": " + sample.getRun()
+				+ ", \"warmup\": " + sample.isWarmup()
+				+ ", \"wallMs\": " + formatNumber(sample.getWallMillis())
+				+ ", \"cpuMs\": " + ((sample.getCpuMillis() < 0) ? "null" : sample.getCpuMillis())
+				+ ", \"peakRssKb\": " + ((sample.getPeakRssKb() < 0) ? "null" : sample.getPeakRssKb()) + "}");
+		}
+
+		json.append(samples.isEmpty() ? "]\n" : "\n  ]\n");
+		json.append("}\n");
+		return json.toString();
+	}
+
+	private static String toJson(Statistics statistics) {
+		return "{\"count\": " + statistics.getCount()
+			+ ", \"min\": " + formatNumber(statistics.getMin())
+			+ ", \"median\": " + formatNumber(statistics.getMedian())
+			+ ", \"mean\": " + formatNumber(statistics.getMean())
+			+ ", \"p90\": " + formatNumber(statistics.getPercentile(90))
+			+ ", \"p99\": " + formatNumber(statistics.getPercentile(99))
+			+ ", \"stddev\": " + formatNumber(statistics.getStandardDeviation()) + "}";
+	}
+
+	/**
+	 * Formats a number of milliseconds to microsecond precision, or as null if there were no samples.
+	 */
+	private static String formatNumber(double value) {
+		return Double.isNaN(value) ? "null" : String.format(Locale.ROOT, "%.3f", value);
+	}
+}
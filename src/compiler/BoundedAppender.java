@@ -0,0 +1,179 @@
+package compiler;
+
+/**
+ * An appender that limits the output passed on to another appender. Output at the head is passed on
+ * as it arrives, and output kept from the tail is passed on by finish(), after a marker giving the
+ * number of characters elided.
+ */
+public class BoundedAppender implements Appender {
+	private final Appender appender;
+	private final Runnable limitCallback;
+
+	private final long maxChars;
+	private final long maxLines;
+	private final long headChars;
+	private final long headLines;
+	private final long tailChars;
+	private final long tailLines;
+
+	private final StringBuilder tail = new StringBuilder();
+
+	private long totalChars = 0;
+	private long totalLines = 0;
+	private long headCharsUsed = 0;
+	private long headLinesUsed = 0;
+	private boolean limitReached = false;
+	private boolean finished = false;
+
+	/**
+	 * Creates a bounded appender.
+	 * @param appender the appender to pass the kept output on to.
+	 * @param limit the limit for the output.
+	 * @param limitCallback called once when the limit is first exceeded.
+	 */
+	public BoundedAppender(Appender appender, OutputLimit limit, Runnable limitCallback) {
+		this.appender = appender;
+		this.limitCallback = limitCallback;
+
+		maxChars = limit.getMaxChars();
+		maxLines = limit.getMaxLines();
+
+		switch(limit.getPolicy()) {
+			case HEAD:
+				headChars = maxChars;
+				headLines = maxLines;
+				break;
+			case TAIL:
+				headChars = 0;
+				headLines = 0;
+				break;
+			default:
+				headChars = maxChars / 2;
+				headLines = maxLines / 2;
+				break;
+		}
+
+		tailChars = maxChars - headChars;
+		tailLines = maxLines - headLines;
+	}
+
+	public void append(String s) {
+		char[] chars = s.toCharArray();
+		append(chars, 0, chars.length);
+	}
+
+	public synchronized void append(char[] chars, int offset, int length) {
+		if(finished) return;
+
+		totalChars += length;
+		totalLines += countLines(chars, offset, length);
+
+		int head = fitHead(chars, offset, length);
+		if(head > 0) {
+			appender.append(chars, offset, head);
+			headCharsUsed += head;
+			headLinesUsed += countLines(chars, offset, head);
+		}
+
+		if(head < length && tailChars > 0) {
+			tail.append(chars, offset + head, length - head);
+
+			// Trim occasionally rather than on every append.
+			if(tail.length() > tailChars * 2) {
+				tail.delete(0, (int) (tail.length() - tailChars));
+			}
+		}
+
+		if(!limitReached && ((head < length && tailChars == 0) || totalChars > maxChars || totalLines > maxLines)) {
+			limitReached = true;
+			limitCallback.run();
+		}
+	}
+
+	/**
+	 * Passes on the output kept from the tail. Any later output is ignored.
+	 */
+	public synchronized void finish() {
+		if(finished) return;
+		finished = true;
+
+		trimTail();
+
+		long dropped = getDroppedChars();
+		if(dropped > 0) {
+			appender.append("\n[" + dropped + " characters elided]\n");
+		}
+
+		if(tail.length() > 0) {
+			appender.append(tail.toString());
+		}
+	}
+
+	public void close() {
+		appender.close();
+	}
+
+	public synchronized boolean isLimitReached() {
+		return limitReached;
+	}
+
+	public synchronized long getTotalChars() {
+		return totalChars;
+	}
+
+	/**
+	 * Returns the number of characters kept, including the tail once finished.
+	 */
+	public synchronized long getRetainedChars() {
+		return headCharsUsed + tail.length();
+	}
+
+	public synchronized long getDroppedChars() {
+		return totalChars - getRetainedChars();
+	}
+
+	/**
+	 * Returns how many of the characters fit in the space left at the head.
+	 */
+	private int fitHead(char[] chars, int offset, int length) {
+		int fit = (int) Math.min(length, headChars - headCharsUsed);
+		long linesLeft = headLines - headLinesUsed;
+
+		if(linesLeft <= 0) return 0;
+
+		for(int i = 0; i < fit; i++) {
+			if(chars[offset + i] == '\n' && --linesLeft == 0) {
+				return i + 1;
+			}
+		}
+
+		return fit;
+	}
+
+	/**
+	 * Trims the tail to the maximum number of characters and lines.
+	 */
+	private void trimTail() {
+		if(tail.length() > tailChars) {
+			tail.delete(0, (int) (tail.length() - tailChars));
+		}
+
+		long lines = 0;
+		for(int i = tail.length() - 1; i >= 0; i--) {
+			if(tail.charAt(i) == '\n' && ++lines > tailLines) {
+				tail.delete(0, i + 1);
+				break;
+			}
+		}
+	}
+
+	private static int countLines(char[] chars, int offset, int length) {
+		int lines = 0;
+		for(int i = offset; i < offset + length; i++) {
+			if(chars[i] == '\n') {
+				lines++;
+			}
+		}
+		return lines;
+	}
+}
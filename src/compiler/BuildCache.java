@@ -0,0 +1,175 @@
+package compiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * An on-disk cache of compiler outputs, keyed by a hash of everything that affects the
+ * compilation. Entries are evicted least recently used first once the cache grows over its
+ * maximum size.
+ */
+public class BuildCache {
+	private final File cacheDir;
+	private final long maxSize;
+
+	/**
+	 * The files in a directory before compiling, used to find the files the compilers created.
+	 */
+	public static class Snapshot {
+		private final Map<String, Long> lastModified = new HashMap<>();
+	}
+
+	/**
+	 * Creates a build cache.
+	 * @param cacheDir the directory to store cached outputs in.
+	 * @param maxSize the maximum total size in bytes of the cached outputs.
+	 */
+	public BuildCache(File cacheDir, long maxSize) {
+		this.cacheDir = cacheDir;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Returns a key for the given parts, such as the source, commandlines, classpath and toolchain identity.
+	 */
+	public static String getKey(List<String> parts) {
+		Hasher hasher = Hashing.sha256().newHasher();
+		for(String part:parts) {
+			hasher.putString(part, StandardCharsets.UTF_8);
+			hasher.putByte((byte) 0);
+		}
+		return hasher.hash().toString();
+	}
+
+	/**
+	 * Copies the cached outputs for key into dir. Returns true on a hit, or false if
+	 * there are no outputs cached for the key.
+	 */
+	public boolean restore(String key, File dir) {
+		File entry = new File(cacheDir, key);
+		if(!entry.isDirectory()) return false;
+
+		try {
+			copyFiles(entry.toPath(), dir.toPath());
+
+			// Mark the entry as recently used.
+			entry.setLastModified(System.currentTimeMillis());
+			return true;
+		} catch(IOException e) {
+			// The entry may have been evicted while copying.
+			return false;
+		}
+	}
+
+	/**
+	 * Returns a snapshot of the files in dir.
+	 */
+	public Snapshot snapshot(File dir) throws IOException {
+		Snapshot snapshot = new Snapshot();
+		for(File file:FileUtils.listFiles(dir, null, true)) {
+			snapshot.lastModified.put(relativePath(dir, file), file.lastModified());
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Stores the files in dir that were created or modified since the snapshot as the outputs for key,
+	 * then evicts old entries if the cache is too large.
+	 */
+	public void store(String key, File dir, Snapshot snapshot) throws IOException {
+		File entry = new File(cacheDir, key);
+		if(entry.exists()) return;
+
+		cacheDir.mkdirs();
+		Path temp = Files.createTempDirectory(cacheDir.toPath(), key + "-");
+
+		try {
+			for(File file:FileUtils.listFiles(dir, null, true)) {
+				String path = relativePath(dir, file);
+				Long lastModified = snapshot.lastModified.get(path);
+				if(lastModified == null || lastModified != file.lastModified()) {
+					Path destination = temp.resolve(path);
+					Files.createDirectories(destination.getParent());
+					Files.copy(file.toPath(), destination, StandardCopyOption.COPY_ATTRIBUTES);
+				}
+			}
+
+			// Move into place atomically so that a partial entry is never restored.
+			try {
+				Files.move(temp, entry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			} catch(FileAlreadyExistsException | DirectoryNotEmptyException | AtomicMoveNotSupportedException e) {
+				// Another run stored the same outputs first.
+				return;
+			}
+		} finally {
+			FileUtils.deleteQuietly(temp.toFile());
+		}
+
+		evict();
+	}
+
+	/**
+	 * Deletes the least recently used entries until the cache is no larger than its maximum size.
+	 */
+	private synchronized void evict() {
+		File[] entries = cacheDir.listFiles();
+		if(entries == null) return;
+
+		List<File> sorted = new ArrayList<>(Arrays.asList(entries));
+		Map<File, Long> sizes = new HashMap<>();
+		Map<File, Long> lastUsed = new HashMap<>();
+
+		// Skip entries that are still being stored.
+		sorted.removeIf(entry -> entry.getName().contains("-"));
+
+		long totalSize = 0;
+		for(File entry:sorted) {
+			long size = FileUtils.sizeOf(entry);
+			sizes.put(entry, size);
+			lastUsed.put(entry, entry.lastModified());
+			totalSize += size;
+		}
+
+		sorted.sort(Comparator.comparing(lastUsed::get));
+
+		for(File entry:sorted) {
+			if(totalSize <= maxSize) break;
+
+			FileUtils.deleteQuietly(entry);
+			totalSize -= sizes.get(entry);
+		}
+	}
+
+	/**
+	 * Copies all files below source into destination, keeping their attributes such as execute permissions.
+	 */
+	private static void copyFiles(Path source, Path destination) throws IOException {
+		for(File file:FileUtils.listFiles(source.toFile(), null, true)) {
+			Path target = destination.resolve(source.relativize(file.toPath()));
+			Files.createDirectories(target.getParent());
+			Files.copy(file.toPath(), target, StandardCopyOption.COPY_ATTRIBUTES, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	private static String relativePath(File dir, File file) {
+		return dir.toPath().relativize(file.toPath()).toString();
+	}
+}
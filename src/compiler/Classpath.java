@@ -0,0 +1,101 @@
+package compiler;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves Java classpath strings into the files they refer to.
+ */
+public class Classpath {
+	private static final Map<File, Expansion> expandedWildcards = new ConcurrentHashMap<>();
+
+	/**
+	 * The jars a wildcard entry expanded to, and the modification time of their directory at the time.
+	 */
+	private static class Expansion {
+		private final long lastModified;
+		private final List<File> files;
+
+		public Expansion(long lastModified, List<File> files) {
+			this.lastModified = lastModified;
+			this.files = files;
+		}
+	}
+
+	/**
+	 * Returns the files in a classpath, resolving relative entries against dir. The expansion of an
+	 * absolute wildcard entry is cached until its directory is modified, such as by a jar being added
+	 * or removed. Other entries are checked each time, since they may be created between runs.
+	 */
+	public static List<File> resolve(File dir, String classpath) {
+		List<File> files = new ArrayList<>();
+
+		for(String path:classpath.split(File.pathSeparator)) {
+			if(path.isEmpty()) continue;
+
+			File entry = new File(path);
+			if(entry.isAbsolute() && entry.getName().equals("*")) {
+				files.addAll(expandCached(entry));
+			} else {
+				files.addAll(expand(entry.isAbsolute() ? entry : new File(dir, path)));
+			}
+		}
+
+		return files;
+	}
+
+	/**
+	 * Returns the jars for a wildcard entry, listing its directory again only if it has been modified
+	 * since it was last listed.
+	 */
+	private static List<File> expandCached(File entry) {
+		long lastModified = entry.getParentFile().lastModified();
+
+		Expansion expansion = expandedWildcards.get(entry);
+		if(expansion == null || expansion.lastModified != lastModified) {
+			expansion = new Expansion(lastModified, expand(entry));
+			expandedWildcards.put(entry, expansion);
+		}
+
+		return expansion.files;
+	}
+
+	/**
+	 * Returns the files for a classpath entry, expanding a trailing '*' to the jars in its directory.
+	 */
+	private static List<File> expand(File entry) {
+		List<File> files = new ArrayList<>();
+
+		if(entry.getName().equals("*")) {
+			File[] jars = entry.getParentFile().listFiles();
+			if(jars != null) {
+				Arrays.sort(jars);
+				for(File jar:jars) {
+					if(jar.getName().toLowerCase().endsWith(".jar")) {
+						files.add(jar);
+					}
+				}
+			}
+		} else if(entry.exists()) {
+			files.add(entry);
+		}
+
+		return files;
+	}
+
+	/**
+	 * Returns the classpath containing the ScratchPad classes, for starting helpers such as
+	 * RunnerMain and PoolLauncher in other JVMs.
+	 */
+	public static String getScratchPadClasspath() {
+		try {
+			return new File(Classpath.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+		} catch(Exception e) {
+			return System.getProperty("java.class.path");
+		}
+	}
+}
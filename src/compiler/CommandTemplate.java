@@ -0,0 +1,190 @@
+package compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A commandline parsed into arguments made of literal text and variables such as $NAME, which is
+ * rendered into the arguments of a process without parsing the commandline again.
+ * <p>
+ * Arguments are separated by whitespace. An argument that starts with a quote continues to the
+ * matching quote, so it can contain whitespace. Variables are expanded in double quotes but not in
+ * single quotes, and a backslash in double quotes escapes a following '"', '\' or '$'. Quotes after
+ * the start of an argument are kept as they are, as in python -c print('a').
+ */
+public class CommandTemplate {
+	public enum Variable {
+		/** The name of the file excluding the extension. */
+		NAME,
+		/** The file extension of the language. */
+		EXT,
+		/** The Java classpath. */
+		CLASSPATH,
+		/** The classpath of scratchpad itself. */
+		SCRATCHPAD,
+		/** The absolute path of the directory the program is compiled and run in. */
+		WORKDIR,
+		/** The number of processors available, for compilers that run parallel jobs. */
+		JOBS
+	}
+
+	/**
+	 * Literal text, or a variable if text is null.
+	 */
+	private static class Part {
+		private final String text;
+		private final Variable variable;
+
+		public Part(String text, Variable variable) {
+			this.text = text;
+			this.variable = variable;
+		}
+	}
+
+	private final String line;
+	private final List<List<Part>> arguments;
+
+	private CommandTemplate(String line, List<List<Part>> arguments) {
+		this.line = line;
+		this.arguments = arguments;
+	}
+
+	/**
+	 * Returns the template for a commandline.
+	 * @throws IllegalArgumentException if a quote isn't closed.
+	 */
+	public static CommandTemplate parse(String line) {
+		List<List<Part>> arguments = new ArrayList<>();
+
+		int i = 0;
+		while(i < line.length()) {
+			if(Character.isWhitespace(line.charAt(i))) {
+				i++;
+				continue;
+			}
+
+			List<Part> parts = new ArrayList<>();
+			StringBuilder text = new StringBuilder();
+
+			char quote = line.charAt(i);
+			if(quote == '"' || quote == '\'') {
+				int end = line.indexOf(quote, i + 1);
+				if(quote == '"') {
+					while(end != -1 && isEscaped(line, end)) {
+						end = line.indexOf(quote, end + 1);
+					}
+				}
+				if(end == -1) {
+					throw new IllegalArgumentException("Unterminated quote in commandline: " + line);
+				}
+
+				if(quote == '\'') {
+					text.append(line, i + 1, end);
+				} else {
+					parseText(line, i + 1, end, true, parts, text);
+				}
+				i = end + 1;
+			}
+
+			int end = i;
+			while(end < line.length() && !Character.isWhitespace(line.charAt(end))) {
+				end++;
+			}
+			parseText(line, i, end, false, parts, text);
+			i = end;
+
+			if(text.length() > 0 || parts.isEmpty()) {
+				parts.add(new Part(text.toString(), null));
+			}
+			arguments.add(parts);
+		}
+
+		return new CommandTemplate(line, arguments);
+	}
+
+	/**
+	 * Adds the literal text and variables in line from start to end to parts, leaving any literal text
+	 * at the end in text so that it can be joined with what follows.
+	 * @param escapes whether a backslash escapes the next character, as in double quotes.
+	 */
+	private static void parseText(String line, int start, int end, boolean escapes, List<Part> parts, StringBuilder text) {
+		for(int i = start; i < end; i++) {
+			char c = line.charAt(i);
+			Variable variable = (c == '$') ? findVariable(line, i + 1, end) : null;
+
+			if(escapes && c == '\\' && i + 1 < end && "\"\\$".indexOf(line.charAt(i + 1)) != -1) {
+				text.append(line.charAt(i + 1));
+				i++;
+			} else if(variable != null) {
+				if(text.length() > 0) {
+					parts.add(new Part(text.toString(), null));
+					text.setLength(0);
+				}
+				parts.add(new Part(null, variable));
+				i += variable.name().length();
+			} else {
+				text.append(c);
+			}
+		}
+	}
+
+	/**
+	 * Returns the variable whose name starts at start, or null if there is none.
+	 */
+	private static Variable findVariable(String line, int start, int end) {
+		for(Variable variable:Variable.values()) {
+			String name = variable.name();
+			if(start + name.length() <= end && line.startsWith(name, start)) {
+				return variable;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns whether the character at index is preceded by an odd number of backslashes.
+	 */
+	private static boolean isEscaped(String line, int index) {
+		int backslashes = 0;
+		while(index - backslashes > 0 && line.charAt(index - backslashes - 1) == '\\') {
+			backslashes++;
+		}
+		return backslashes % 2 == 1;
+	}
+
+	/**
+	 * Returns the arguments with the variables replaced by their values. Variables without a value
+	 * are left as their name, such as "$WORKDIR".
+	 */
+	public List<String> render(Map<Variable, String> values) {
+		List<String> rendered = new ArrayList<>(arguments.size());
+
+		for(List<Part> parts:arguments) {
+			if(parts.size() == 1 && parts.get(0).text != null) {
+				rendered.add(parts.get(0).text);
+			} else {
+				StringBuilder argument = new StringBuilder();
+				for(Part part:parts) {
+					if(part.text != null) {
+						argument.append(part.text);
+					} else if(values.containsKey(part.variable)) {
+						argument.append(values.get(part.variable));
+					} else {
+						argument.append('$').append(part.variable.name());
+					}
+				}
+				rendered.add(argument.toString());
+			}
+		}
+
+		return rendered;
+	}
+
+	/**
+	 * Returns the commandline the template was parsed from.
+	 */
+	public String getLine() {
+		return line;
+	}
+}
@@ -0,0 +1,125 @@
+package compiler;
+
+import java.util.regex.Pattern;
+
+/**
+ * The comment syntax of a language, used to normalize source code so that edits to comments or
+ * whitespace can be told apart from edits that change the program.
+ */
+public class CommentSyntax {
+	public static final CommentSyntax NONE = new CommentSyntax(null, null, null);
+
+	/** Comments such as "// DEP: ..." and "# LIMIT: ..." that change how a program is run. */
+	private static final Pattern DIRECTIVE_PATTERN = Pattern.compile("\\s*[A-Z]+:.*");
+
+	private final String line;
+	private final String blockStart;
+	private final String blockEnd;
+
+	/**
+	 * Creates a comment syntax. Any of the delimiters can be null if the language doesn't have that kind of comment.
+	 * @param line the start of a comment to the end of the line, such as "//".
+	 * @param blockStart the start of a block comment, such as "/*".
+	 * @param blockEnd the end of a block comment.
+	 */
+	public CommentSyntax(String line, String blockStart, String blockEnd) {
+		this.line = line;
+		this.blockStart = (blockEnd == null) ? null : blockStart;
+		this.blockEnd = (blockStart == null) ? null : blockEnd;
+	}
+
+	/**
+	 * Returns the start of a comment to the end of the line, or null if there is none.
+	 */
+	public String getLine() {
+		return line;
+	}
+
+	/**
+	 * Returns the start of a block comment, or null if there is none.
+	 */
+	public String getBlockStart() {
+		return blockStart;
+	}
+
+	/**
+	 * Returns the end of a block comment, or null if there is none.
+	 */
+	public String getBlockEnd() {
+		return blockEnd;
+	}
+
+	/**
+	 * Returns the source with comments, trailing whitespace and blank lines removed. Text in string
+	 * literals, indentation and directive comments are kept, so two sources with the same normalized
+	 * text run the same way.
+	 */
+	public String normalize(String contents) {
+		StringBuilder code = new StringBuilder();
+
+		int i = 0;
+		while(i < contents.length()) {
+			char c = contents.charAt(i);
+
+			if(c == '"' || c == '\'') {
+				int end = findStringEnd(contents, i);
+				code.append(contents, i, end);
+				i = end;
+			} else if(line != null && contents.startsWith(line, i)) {
+				int end = contents.indexOf('\n', i);
+				if(end == -1) end = contents.length();
+
+				if(DIRECTIVE_PATTERN.matcher(contents.substring(i + line.length(), end)).matches()) {
+					code.append(contents, i, end);
+				}
+				i = end;
+			} else if(blockStart != null && contents.startsWith(blockStart, i)) {
+				int end = contents.indexOf(blockEnd, i + blockStart.length());
+				i = (end == -1) ? contents.length() : end + blockEnd.length();
+
+				// Keep tokens on either side of the comment apart.
+				code.append(' ');
+			} else if(c == '\n') {
+				// Newlines in string literals are appended with the literal, so this only trims code.
+				trimEnd(code);
+				if(code.length() > 0 && code.charAt(code.length() - 1) != '\n') {
+					code.append('\n');
+				}
+				i++;
+			} else {
+				code.append(c);
+				i++;
+			}
+		}
+
+		return code.toString().replaceAll("\\s+$", "");
+	}
+
+	/**
+	 * Removes whitespace other than newlines from the end of text.
+	 */
+	private static void trimEnd(StringBuilder text) {
+		int end = text.length();
+		while(end > 0 && text.charAt(end - 1) != '\n' && Character.isWhitespace(text.charAt(end - 1))) {
+			end--;
+		}
+		text.setLength(end);
+	}
+
+	/**
+	 * Returns the index after the end of the string literal starting at start, skipping escaped quotes.
+	 * An unterminated literal runs to the end of the source, so its text is always kept.
+	 */
+	private static int findStringEnd(String contents, int start) {
+		char quote = contents.charAt(start);
+		for(int i = start + 1; i < contents.length(); i++) {
+			char c = contents.charAt(i);
+			if(c == '\\') {
+				i++;
+			} else if(c == quote) {
+				return i + 1;
+			}
+		}
+		return contents.length();
+	}
+}
@@ -1,60 +1,133 @@
 package compiler;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 import org.apache.commons.io.FileUtils;
 
+import com.google.common.util.concurrent.ForwardingFuture;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import ui.Callback;
 
 public class Compiler {
-	private static ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true).build());
+	private static ExecutorService executor = RunScope.createExecutor();
+	private static ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).build());
+	
+	/** The time in milliseconds between samples of the CPU time and memory use of a process. */
+	private static final long SAMPLE_INTERVAL = 20;
 	
 	private final Language language;
 	private final String classpath;
 	
-	private static class StreamReader implements Runnable {
-		private BufferedReader reader;
-		private Appender appender;
-		private Appender info;
+	private boolean interactive = false;
+	private File inputFile = null;
+	
+	public Compiler(Language language, String classpath) {
+		this.language = language;
+		this.classpath = classpath;
+	}
+	
+	/**
+	 * Sets a file to connect directly to the standard input of programs instead of the input passed
+	 * to runFile or runBenchmark, or null to use that input.
+	 */
+	public void setInputFile(File inputFile) {
+		this.inputFile = inputFile;
+	}
+	
+	/**
+	 * Sets whether programs are run interactively, in a pseudo-terminal where available so that their
+	 * output is line buffered, with input that stays open to be written to while they run.
+	 */
+	public void setInteractive(boolean interactive) {
+		this.interactive = interactive;
+	}
+
+	/**
+	 * A run started by runFile. Cancelling it stops every process started by the run, including
+	 * their descendants.
+	 */
+	public static class Run extends ForwardingFuture<Object> {
+		private final RunScope scope;
+		private final Future<Object> future;
+		private final CountDownLatch terminated;
+		private final AtomicBoolean started;
+		private final RunStats stats;
+		private final LiveInput input;
 		
-		public StreamReader(InputStream inputStream, Appender appender, Appender info) {
-			this.reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
-			this.appender = appender;
-			this.info = info;
+		private Run(RunScope scope, Future<Object> future, CountDownLatch terminated, AtomicBoolean started, RunStats stats, LiveInput input) {
+			this.scope = scope;
+			this.future = future;
+			this.terminated = terminated;
+			this.started = started;
+			this.stats = stats;
+			this.input = input;
 		}
 		
-		public void run() {
-			try {
-				String line;
-				while((line = reader.readLine()) != null) {
-					appender.append(line + "\n");
-				}
-			} catch(IOException e) {
-				info.append("ERROR: IOException reading stream.\n");
-				e.printStackTrace();
+		protected Future<Object> delegate() {
+			return future;
+		}
+		
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			// Cancel the whole run rather than relying on interrupting whatever it is blocked on.
+			scope.cancel();
+			
+			if(!started.getAndSet(true)) {
+				terminated.countDown();
 			}
+			
+			return super.cancel(mayInterruptIfRunning);
+		}
+		
+		/**
+		 * Waits until every process started by the run has exited, up to a timeout.
+		 * Returns whether they have exited.
+		 */
+		public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+			return terminated.await(timeout, unit);
+		}
+		
+		/**
+		 * Returns the number of processes that were still running when the run was stopped.
+		 */
+		public int getReapedCount() {
+			return scope.getReapedCount();
+		}
+		
+		/**
+		 * Returns the timings and resource usage recorded so far, which are complete once the run has finished.
+		 */
+		public RunStats getStats() {
+			return stats;
+		}
+		
+		/**
+		 * Returns the standard input of the program, which stays open in an interactive run until it is closed.
+		 */
+		public LiveInput getInput() {
+			return input;
 		}
 	}
 	
-	public Compiler(Language language, String classpath) {
-		this.language = language;
-		this.classpath = classpath;
-	}
-
 	/**
 	 * Compiles and runs a source file. Displays output to out,
 	 * and compilation and program errors to err.
@@ -66,62 +139,455 @@ public class Compiler {
 	 * @param err Appender to send errors to.
 	 * @param callback The callback to call when the run is finished.
 	 */
-	public Future<?> runFile(final String contents, final String input, final Appender out, final Appender err, final Appender info, final Callback<Void> finishedCallback) {
-		return executor.submit(new Callable<Void>() {
-			public Void call() throws Exception {
-				runFileSync(contents, input, out, err, info, finishedCallback);
+	public Run runFile(final String contents, final String input, final Appender out, final Appender err, final Appender info, final Callback<Void> finishedCallback) {
+		return runFile(null, contents, input, out, err, info, finishedCallback);
+	}
+	
+	/**
+	 * Compiles and runs a source file after waiting for the processes of a previous run to exit.
+	 * 
+	 * @param previous The previous run that has been stopped, or null.
+	 */
+	public Run runFile(final Run previous, final String contents, final String input, final Appender out, final Appender err, final Appender info, final Callback<Void> finishedCallback) {
+		final LiveInput liveInput = new LiveInput();
+		
+		if(input != null) {
+			liveInput.write(input);
+		}
+		if(!interactive) {
+			liveInput.close();
+		}
+		
+		// An input file is read by the program directly, so there is no input to send.
+		return start(previous, contents, false, (scope, stats, program, limits) -> {
+			runProgram(scope, stats.addProcess("run"), program, limits, out, err, info, (inputFile == null) ? liveInput : null);
+		}, liveInput, out, err, info, finishedCallback);
+	}
+	
+	/**
+	 * Compiles a source file once and runs it against each test case, running as many cases at a time
+	 * as there are processors. Displays a table of the results to out when the cases have finished.
+	 * 
+	 * @param previous The previous run that has been stopped, or null.
+	 * @param finishedCallback The callback to call with the results when the run is finished. The results
+	 * are empty if the program couldn't be compiled, or incomplete if the run was stopped.
+	 */
+	public Run runCases(final Run previous, final String contents, final List<TestCase> cases, final Appender out, final Appender err, final Appender info, final Callback<List<TestCase.Result>> finishedCallback) {
+		final List<TestCase.Result> results = new ArrayList<>();
+		final int parallelism = Runtime.getRuntime().availableProcessors();
+		
+		return start(previous, contents, true, (scope, stats, program, limits) -> {
+			results.addAll(runCases(scope, stats, program, limits, cases, parallelism));
+			out.append(TestCase.formatResults(results));
+		}, LiveInput.of(""), out, err, info, param -> finishedCallback.onCallback(results));
+	}
+	
+	/**
+	 * Compiles a source file once and runs it repeatedly with the same input, first to warm up and then
+	 * recording the wall time and CPU time of each run in the benchmark. Displays the output of the first
+	 * run, and a table of the statistics when the runs have finished. Stops at the first run that fails.
+	 * 
+	 * @param previous The previous run that has been stopped, or null.
+	 * @param finishedCallback The callback to call with the benchmark when the run is finished, which has
+	 * no samples if the program couldn't be compiled.
+	 */
+	public Run runBenchmark(final Run previous, final String contents, final String input, final Benchmark benchmark, final Appender out, final Appender err, final Appender info, final Callback<Benchmark> finishedCallback) {
+		return start(previous, contents, true, (scope, stats, program, limits) -> {
+			if(runBenchmark(scope, stats, program, limits, input, benchmark, out, err, info)) {
+				out.append(benchmark.format());
+			}
+		}, LiveInput.of(""), out, err, info, param -> finishedCallback.onCallback(benchmark));
+	}
+	
+	/**
+	 * Runs a program that has been compiled, once or several times.
+	 */
+	private interface Execution {
+		void run(RunScope scope, RunStats stats, Callable<Process> program, ResourceLimits limits) throws Exception;
+	}
+	
+	/**
+	 * Starts a run that compiles a source file and then runs an execution of the program, after waiting for the
+	 * processes of a previous run to exit.
+	 * @param repeated whether the execution runs the program more than once, so it can't use a process started ahead of time.
+	 */
+	private Run start(final Run previous, final String contents, final boolean repeated, final Execution execution, LiveInput liveInput, final Appender out, final Appender err, final Appender info, final Callback<Void> finishedCallback) {
+		final RunScope scope = new RunScope(executor);
+		final CountDownLatch terminated = new CountDownLatch(1);
+		final AtomicBoolean started = new AtomicBoolean(false);
+		final RunStats stats = new RunStats();
+		
+		FutureTask<Object> task = new FutureTask<>(new Callable<Object>() {
+			public Object call() throws Exception {
+				if(started.getAndSet(true)) {
+					return null;
+				}
+				
+				try {
+					awaitPrevious(previous, info);
+					runFileSync(scope, stats, contents, repeated, execution, out, err, info, finishedCallback);
+				} finally {
+					terminated.countDown();
+				}
 				return null;
 			}
 		});
+		
+		Run run = new Run(scope, task, terminated, started, stats, liveInput);
+		executor.execute(task);
+		return run;
 	}
 	
-	private void runFileSync(String contents, String input, Appender out, Appender err, Appender info, Callback<Void> finishedCallback) throws InterruptedException {
+	/**
+	 * Waits for the processes of a previous run to exit, and reports how many had to be stopped.
+	 */
+	private static void awaitPrevious(Run previous, Appender info) throws InterruptedException {
+		if(previous == null) return;
+		
+		if(!previous.awaitTermination(5, TimeUnit.SECONDS)) {
+			info.append("ERROR: Timed out waiting for the previous run to stop.\n");
+		} else if(previous.getReapedCount() > 0) {
+			info.append("Stopped previous run: " + previous.getReapedCount() + " processes reaped\n");
+		}
+	}
+	
+	private void runFileSync(RunScope scope, RunStats stats, String contents, boolean repeated, Execution execution, Appender out, Appender err, Appender info, Callback<Void> finishedCallback) throws InterruptedException {
 		File dir = null;
+		ProcessPool.PooledProcess pooled = null;
+		Workspace workspace = language.getWorkspace();
+		long phaseStart = System.nanoTime();
 		
 		try {
 			String name = language.getFileName(contents);
 			
-			dir = Files.createTempDirectory("scratchpad").toFile();
+			// Pooled processes were started with the language's limits, so can't be used if the source sets its own,
+			// and aren't attached to a pseudo-terminal or input file. Sources with dependencies need their jars
+			// linked into the directory before the process starts, so can't use a pooled process either.
+			if(language.hasPool() && !ResourceLimits.hasDirective(contents) && language.getDependencies(contents).isEmpty() && !interactive && inputFile == null && !repeated) {
+				pooled = language.takePooledProcess(classpath);
+				info.append("Process pool " + ((pooled == null) ? "miss" : "hit") + "\n");
+			}
+			
+			if(pooled != null) {
+				dir = pooled.getDir();
+			} else if(workspace != null) {
+				dir = workspace.acquire();
+			} else {
+				dir = Workspace.createTempDirectory();
+			}
+			
 			File source = new File(dir, name + "." + language.getExtension());
 			
 			FileUtils.write(source, contents, StandardCharsets.UTF_8);
+			phaseStart = endPhase(stats, "workspace", phaseStart);
 			
-			for(Callable<Process> compilerProcessBuilder:language.createCompilers(dir, name, contents, classpath)) {
-				if(runProcess(compilerProcessBuilder, out, err, info, null) != 0) {
+			List<Callable<Process>> setupSteps = language.createSetupSteps(dir, name, contents, classpath);
+			for(Callable<Process> setupProcessBuilder:setupSteps) {
+				if(runProcess(scope, setupProcessBuilder, out, err, info, null, stats.addProcess("setup"), process -> null) != 0) {
 					return;
 				}
 			}
+			if(!setupSteps.isEmpty()) {
+				phaseStart = endPhase(stats, "setup", phaseStart);
+			}
 			
-			int exitValue = runProcess(language.runProgram(dir, name, contents, classpath), out, err, info, input);
-			if(exitValue != 0) {
-				err.append("Exited with error value: " + exitValue);
+			boolean compiled = compile(scope, stats, dir, name, contents, out, err, info);
+			phaseStart = endPhase(stats, "compile", phaseStart);
+			if(!compiled) {
+				return;
 			}
+			
+			if(interactive && !repeated && !Pty.isSupported()) {
+				info.append("ERROR: script isn't available, so the program isn't run in a terminal and may buffer its output.\n");
+			}
+			
+			Callable<Process> program;
+			if(pooled != null) {
+				program = language.runProgram(pooled, name);
+			} else if(repeated) {
+				program = language.runProgram(dir, name, contents, classpath, false, inputFile);
+			} else {
+				program = language.runProgram(dir, name, contents, classpath, interactive && Pty.isSupported(), inputFile);
+			}
+			
+			ResourceLimits limits = language.getLimits(contents);
+			if(limits.hasProcessLimits() && !ResourceLimits.isSupported()) {
+				info.append("ERROR: prlimit isn't available, so only the wall time limit is applied.\n");
+			}
+			
+			execution.run(scope, stats, program, limits);
+			phaseStart = endPhase(stats, "run", phaseStart);
+		} catch(CancellationException e) {
+			// The run was stopped.
 		} catch(Exception e) {
-			info.append("ERROR: Exception running program: " + e.getMessage() + "\n");
-			e.printStackTrace();
+			if(!scope.isCancelled()) {
+				info.append("ERROR: Exception running program: " + e.getMessage() + "\n");
+				e.printStackTrace();
+			}
 		} finally {
+			// Make sure no subtask or process outlives the run.
+			scope.close();
+			
+			if(!scope.isCancelled() && scope.getReapedCount() > 0) {
+				info.append("Stopped " + scope.getReapedCount() + " processes left running\n");
+			}
+			
+			if(pooled != null) {
+				pooled.discard();
+			}
+			
+			// Clean up in the background so that the run is reported as finished straight away.
 			if(dir != null) {
-				try {
-					FileUtils.deleteDirectory(dir);
-				} catch (IOException e) {
+				if(pooled == null && workspace != null) {
+					workspace.release(dir);
+				} else {
+					Workspace.delete(dir);
 				}
 			}
 			
+			endPhase(stats, "cleanup", phaseStart);
+			if(!scope.isCancelled()) {
+				info.append(stats.getSummary());
+			}
+			
 			finishedCallback.onCallback(null);
 		}
 	}
 	
-	private int runProcess(Callable<Process> processBuilder, Appender out, Appender err, Appender info, String input) throws Exception {
-		Process process = processBuilder.call();
+	/**
+	 * Records the wall time of a phase that started at phaseStart, and returns the time it ended.
+	 */
+	private static long endPhase(RunStats stats, String name, long phaseStart) {
+		long phaseEnd = System.nanoTime();
+		stats.addPhase(name, phaseEnd - phaseStart);
+		return phaseEnd;
+	}
+	
+	/**
+	 * Runs the compile steps, or restores their outputs from the build cache if the same source
+	 * has been compiled before. Returns whether compilation succeeded.
+	 */
+	private boolean compile(RunScope scope, RunStats stats, File dir, String name, String contents, Appender out, Appender err, Appender info) throws Exception {
+		BuildCache buildCache = Languages.getBuildCache();
+		String key = (buildCache == null) ? null : language.getBuildKey(name, contents, classpath);
+		
+		if(key != null && buildCache.restore(key, dir)) {
+			info.append("Build cache hit\n");
+			return true;
+		}
+		
+		BuildCache.Snapshot snapshot = (key == null) ? null : buildCache.snapshot(dir);
+		
+		for(Callable<Process> compilerProcessBuilder:language.createCompileSteps(dir, name, contents, classpath)) {
+			if(runProcess(scope, compilerProcessBuilder, out, err, info, null, stats.addProcess("compile"), process -> null) != 0) {
+				return false;
+			}
+		}
+		
+		if(key != null) {
+			info.append("Build cache miss\n");
+			try {
+				buildCache.store(key, dir, snapshot);
+			} catch(IOException e) {
+				info.append("ERROR: Exception storing build outputs: " + e.getMessage() + "\n");
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Runs a program against each test case, running up to parallelism cases at a time.
+	 */
+	private List<TestCase.Result> runCases(RunScope scope, RunStats stats, Callable<Process> program, ResourceLimits limits, List<TestCase> cases, int parallelism) throws Exception {
+		Semaphore permits = new Semaphore(parallelism);
+		
+		List<Future<TestCase.Result>> futures = new ArrayList<>();
+		for(TestCase testCase:cases) {
+			futures.add(scope.fork(() -> {
+				permits.acquire();
+				try {
+					return runCase(scope, stats, program, limits, testCase);
+				} finally {
+					permits.release();
+				}
+			}));
+		}
+		
+		List<TestCase.Result> results = new ArrayList<>();
+		for(Future<TestCase.Result> future:futures) {
+			try {
+				results.add(future.get());
+			} catch(ExecutionException e) {
+				throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+			}
+		}
+		return results;
+	}
+	
+	/**
+	 * Runs a program the number of times set by the benchmark, one run at a time so they don't compete for
+	 * processors, and adds a sample for each run. Returns whether every run succeeded.
+	 */
+	private boolean runBenchmark(RunScope scope, RunStats stats, Callable<Process> program, ResourceLimits limits, String input, Benchmark benchmark, Appender out, Appender err, Appender info) throws Exception {
+		int total = benchmark.getWarmup() + benchmark.getRuns();
+		
+		for(int run = 1; run <= total; run++) {
+			boolean warmup = (run <= benchmark.getWarmup());
+			
+			// Only the output of the first run is shown, but the errors of any run that fails are.
+			StringAppender errors = new StringAppender();
+			RunStats.ProcessStats processStats = stats.addProcess((warmup ? "warm-up " : "run ") + run);
+			runProgram(scope, processStats, program, limits, (run == 1) ? out : Appender.NULL, errors, errors, (inputFile == null) ? LiveInput.of(input) : null);
+			
+			if(scope.isCancelled()) {
+				return false;
+			}
+			
+			boolean failed = (processStats.getExitValue() == null || processStats.getExitValue() != 0);
+			if(run == 1 || failed) {
+				err.append(errors.toString());
+			}
+			
+			if(failed) {
+				if(!errors.toString().endsWith("\n")) {
+					err.append("\n");
+				}
+				info.append("ERROR: Benchmark stopped because run " + run + " of " + total + " failed.\n");
+				return false;
+			}
+			
+			benchmark.addSample(new Benchmark.Sample(run, warmup, processStats.getRunNanos(), processStats.getCpuMillis(), processStats.getPeakRssKb()));
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Runs a program with the input of a test case, collecting its output to compare with the expected output.
+	 */
+	private TestCase.Result runCase(RunScope scope, RunStats stats, Callable<Process> program, ResourceLimits limits, TestCase testCase) throws Exception {
+		StringAppender out = new StringAppender();
+		StringAppender errors = new StringAppender();
+		
+		RunStats.ProcessStats processStats = stats.addProcess("case " + testCase.getName());
+		runProgram(scope, processStats, program, limits, out, errors, errors, LiveInput.of(testCase.getInput()));
+		
+		return new TestCase.Result(testCase, out.toString(), errors.toString(), processStats.getExitValue(), processStats.getRunMillis(), processStats.getPeakRssKb());
+	}
+	
+	/**
+	 * Runs a program, limiting its output and the time it can run for. Reports an error if the program
+	 * exits with an error or exceeds a limit.
+	 */
+	private void runProgram(RunScope scope, RunStats.ProcessStats processStats, Callable<Process> processBuilder, ResourceLimits limits, Appender out, Appender err, Appender info, LiveInput input) throws Exception {
+		OutputLimit limit = Languages.getOutputLimit();
+		
+		// Keep the end of the error output to tell whether the program failed from a memory or open files limit.
+		TailAppender errorTail = new TailAppender(err, 4096);
+		err = errorTail;
+		
+		AtomicReference<Process> running = new AtomicReference<>();
+		AtomicBoolean timedOut = new AtomicBoolean(false);
+		
+		BoundedAppender boundedOut = null;
+		BoundedAppender boundedErr = null;
+		
+		if(limit != null) {
+			Runnable limitCallback = () -> {
+				if(limit.isKill()) {
+					kill(scope, running.get());
+				}
+			};
+			
+			boundedOut = new BoundedAppender(out, limit, limitCallback);
+			boundedErr = new BoundedAppender(err, limit, limitCallback);
+		}
+		
+		int exitValue;
+		
+		try {
+			exitValue = runProcess(scope, () -> {
+				Process process = processBuilder.call();
+				running.set(process);
+				return process;
+			}, (boundedOut == null) ? out : boundedOut, (boundedErr == null) ? err : boundedErr, info, input, processStats, process -> {
+				if(limits.getWallTime() > 0) {
+					return scheduler.schedule(() -> {
+						timedOut.set(true);
+						kill(scope, process);
+					}, limits.getWallTime(), TimeUnit.SECONDS);
+				}
+				return null;
+			});
+		} finally {
+			if(boundedOut != null) {
+				boundedOut.finish();
+				boundedErr.finish();
+				
+				reportLimit("stdout", boundedOut, limit, info);
+				reportLimit("stderr", boundedErr, limit, info);
+			}
+		}
+		
+		if(scope.isCancelled()) return;
+		
+		String violation = limits.getViolation(exitValue, processStats.getCpuMillis(), errorTail.getTail());
+		if(timedOut.get()) {
+			info.append("Wall time limit of " + limits.getWallTime() + "s exceeded, process killed\n");
+		} else if(violation != null) {
+			info.append(violation + "\n");
+		} else if(exitValue != 0) {
+			err.append("Exited with error value: " + exitValue);
+		}
+	}
+	
+	/**
+	 * Kills a process started in a scope and its descendants straight away, including those remembered by its tree.
+	 */
+	private static void kill(RunScope scope, Process process) {
+		if(process != null) {
+			ProcessTree tree = scope.getTree(process);
+			((tree == null) ? new ProcessTree(process) : tree).kill();
+		}
+	}
+	
+	private static void reportLimit(String name, BoundedAppender appender, OutputLimit limit, Appender info) {
+		if(appender.isLimitReached()) {
+			info.append("Output limit reached on " + name + ((limit.isKill()) ? ", process killed" : "") + ": "
+				+ appender.getTotalChars() + " characters total, "
+				+ appender.getRetainedChars() + " retained, "
+				+ appender.getDroppedChars() + " dropped\n");
+		}
+	}
+	
+	/**
+	 * Runs a process, sending it input and appending its output.
+	 * @param processStats records the timings, resource usage and output of the process.
+	 * @param startTimer starts a timer for the process once it has started, which is cancelled when the
+	 * process finishes, or returns null.
+	 */
+	private int runProcess(RunScope scope, Callable<Process> processBuilder, Appender out, Appender err, Appender info, LiveInput input, RunStats.ProcessStats processStats, Function<Process, ScheduledFuture<?>> startTimer) throws Exception {
+		long spawnStart = System.nanoTime();
+		Process process = scope.start(processBuilder);
+		long started = System.nanoTime();
+		processStats.setSpawnNanos(started - spawnStart);
+		
+		ScheduledFuture<?> timer = startTimer.apply(process);
+		Runnable sampler = createSampler(scope.getTree(process), processStats);
+		ScheduledFuture<?> samples = (sampler == null) ? null : scheduler.scheduleAtFixedRate(sampler, 0, SAMPLE_INTERVAL, TimeUnit.MILLISECONDS);
+		
+		StreamReader outReader = new StreamReader(process.getInputStream(), out, info);
+		StreamReader errReader = new StreamReader(process.getErrorStream(), err, info);
 		
 		try {
-			Future<?> outFuture = executor.submit(new StreamReader(process.getInputStream(), out, info));
-			Future<?> errFuture = executor.submit(new StreamReader(process.getErrorStream(), err, info));
+			Future<?> outFuture = scope.fork(outReader);
+			Future<?> errFuture = scope.fork(errReader);
 	
 			// Send input to process.
 			if(input != null) {
-				try(BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8))) {
-					writer.append(input);
+				try {
+					input.attach(process.getOutputStream());
 				} catch(IOException e) {
 					// Process can exit without reading input, leaving a broken pipe.
 					info.append("ERROR: Exception writing input: " + e.getMessage() + "\n");
@@ -132,9 +598,63 @@ public class Compiler {
 			// Wait for program to exit and all output to be read.
 			outFuture.get();
 			errFuture.get();
-			return process.waitFor();
+			
+			// The output streams are closed as the process exits, so sample it once more before it is waited for and
+			// its entry in /proc is gone. Otherwise the CPU time since the last sample, or all of it for a program
+			// that exits before the first sample, would be missed.
+			if(sampler != null) {
+				sampler.run();
+			}
+			
+			int exitValue = process.waitFor();
+			processStats.setExitValue(exitValue);
+			return exitValue;
 		} finally {
-			process.destroy();
+			if(timer != null) {
+				timer.cancel(false);
+			}
+			if(samples != null) {
+				samples.cancel(false);
+			}
+			
+			processStats.setRunNanos(System.nanoTime() - started);
+			processStats.setOutput(outReader.getBytesRead() + errReader.getBytesRead(), outReader.getLinesRead() + errReader.getLinesRead());
+			
+			long firstRead = firstReadTime(outReader.getFirstReadTime(), errReader.getFirstReadTime());
+			if(firstRead != 0) {
+				processStats.setFirstOutputNanos(firstRead - started);
+			}
+			
+			// Stop any descendants left running if the run failed or was stopped.
+			scope.destroy(process);
+		}
+	}
+	
+	/**
+	 * Returns a task that samples the CPU time and memory use of a process and its descendants each time
+	 * it is run, or null if the process isn't an operating system process. The descendants it sees are
+	 * remembered by the tree, so they are stopped with the run even if their parent has exited.
+	 */
+	private static Runnable createSampler(ProcessTree tree, RunStats.ProcessStats processStats) {
+		if(tree == null || tree.getRunning() == null) {
+			return null;
 		}
+		
+		return () -> {
+			List<Long> pids = new ArrayList<>();
+			for(ProcessHandle handle:tree.getRunning()) {
+				pids.add(handle.pid());
+			}
+			processStats.sample(pids);
+		};
+	}
+	
+	/**
+	 * Returns the earliest of two times from StreamReader.getFirstReadTime(), or 0 if neither stream was read.
+	 */
+	private static long firstReadTime(long outTime, long errTime) {
+		if(outTime == 0) return errTime;
+		if(errTime == 0) return outTime;
+		return (outTime - errTime < 0) ? outTime : errTime;
 	}
 }
@@ -0,0 +1,47 @@
+package compiler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A process that has already finished, with a fixed exit value and output. Used to
+ * report the result of work done inside ScratchPad through the same interface as
+ * external processes.
+ */
+public class CompletedProcess extends Process {
+	private final int exitValue;
+	private final byte[] output;
+	private final byte[] errorOutput;
+
+	public CompletedProcess(int exitValue, String output, String errorOutput) {
+		this.exitValue = exitValue;
+		this.output = output.getBytes(StandardCharsets.UTF_8);
+		this.errorOutput = errorOutput.getBytes(StandardCharsets.UTF_8);
+	}
+
+	public OutputStream getOutputStream() {
+		return new ByteArrayOutputStream();
+	}
+
+	public InputStream getInputStream() {
+		return new ByteArrayInputStream(output);
+	}
+
+	public InputStream getErrorStream() {
+		return new ByteArrayInputStream(errorOutput);
+	}
+
+	public int waitFor() throws InterruptedException {
+		return exitValue;
+	}
+
+	public int exitValue() {
+		return exitValue;
+	}
+
+	public void destroy() {
+	}
+}
@@ -0,0 +1,152 @@
+package compiler;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jdom2.Attribute;
+import org.jdom2.Element;
+
+/**
+ * An element of the languages configuration with its attributes, trimmed text and child elements.
+ * The configuration is parsed from XML into these nodes, which can be written to and read from a
+ * compact binary snapshot so the XML doesn't need to be parsed again until it changes.
+ */
+public class ConfigNode {
+	private final String name;
+	private final String text;
+	private final Map<String, String> attributes;
+	private final List<ConfigNode> children;
+
+	public ConfigNode(String name, String text, Map<String, String> attributes, List<ConfigNode> children) {
+		this.name = name;
+		this.text = text;
+		this.attributes = attributes;
+		this.children = children;
+	}
+
+	/**
+	 * Returns the node for an XML element and its descendants.
+	 */
+	public static ConfigNode fromElement(Element element) {
+		Map<String, String> attributes = new LinkedHashMap<>();
+		for(Attribute attribute:element.getAttributes()) {
+			attributes.put(attribute.getName(), attribute.getValue());
+		}
+
+		List<ConfigNode> children = new ArrayList<>();
+		for(Element child:element.getChildren()) {
+			children.add(fromElement(child));
+		}
+
+		return new ConfigNode(element.getName(), element.getTextTrim(), attributes, children);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the trimmed text of the node.
+	 */
+	public String getText() {
+		return text;
+	}
+
+	/**
+	 * Returns the value of an attribute, or null if the node doesn't have the attribute.
+	 */
+	public String getAttribute(String name) {
+		return attributes.get(name);
+	}
+
+	/**
+	 * Returns the first child with a name, or null if there is none.
+	 */
+	public ConfigNode getChild(String name) {
+		for(ConfigNode child:children) {
+			if(child.getName().equals(name)) {
+				return child;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the children with a name, in the order they were configured.
+	 */
+	public List<ConfigNode> getChildren(String name) {
+		List<ConfigNode> named = new ArrayList<>();
+		for(ConfigNode child:children) {
+			if(child.getName().equals(name)) {
+				named.add(child);
+			}
+		}
+		return named;
+	}
+
+	/**
+	 * Writes the node and its descendants.
+	 */
+	public void write(DataOutputStream output) throws IOException {
+		writeString(output, name);
+		writeString(output, text);
+
+		output.writeInt(attributes.size());
+		for(Map.Entry<String, String> attribute:attributes.entrySet()) {
+			writeString(output, attribute.getKey());
+			writeString(output, attribute.getValue());
+		}
+
+		output.writeInt(children.size());
+		for(ConfigNode child:children) {
+			child.write(output);
+		}
+	}
+
+	/**
+	 * Reads a node and its descendants written by write.
+	 */
+	public static ConfigNode read(DataInputStream input) throws IOException {
+		String name = readString(input);
+		String text = readString(input);
+
+		int attributeCount = input.readInt();
+		Map<String, String> attributes = new LinkedHashMap<>();
+		for(int i = 0; i < attributeCount; i++) {
+			attributes.put(readString(input), readString(input));
+		}
+
+		int childCount = input.readInt();
+		List<ConfigNode> children = new ArrayList<>();
+		for(int i = 0; i < childCount; i++) {
+			children.add(read(input));
+		}
+
+		return new ConfigNode(name, text, attributes, children);
+	}
+
+	/**
+	 * Writes a string as its length and UTF-8 bytes, since writeUTF is limited to 64KB, which a template could exceed.
+	 */
+	private static void writeString(DataOutputStream output, String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+
+	private static String readString(DataInputStream input) throws IOException {
+		int length = input.readInt();
+		if(length < 0) {
+			throw new IOException("Invalid string length: " + length);
+		}
+		byte[] bytes = new byte[length];
+		input.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
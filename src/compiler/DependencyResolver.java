@@ -0,0 +1,412 @@
+package compiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.JDOMException;
+import org.jdom2.input.SAXBuilder;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Resolves dependency coordinates of the form 'group artifact version' and their transitive
+ * dependencies against local Maven repositories and Ivy caches, without starting any processes.
+ * Each level of the dependency graph is resolved in parallel, and the first version found for an
+ * artifact wins over versions found deeper in the graph.
+ */
+public class DependencyResolver {
+	private static final Pattern PROPERTY_PATTERN = Pattern.compile("\\$\\{([^}]+)\\}");
+
+	private static ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactoryBuilder().setDaemon(true).build());
+
+	private final List<File> mavenRepositories;
+	private final List<File> ivyCaches;
+
+	private final Map<String, Document> parsedDocuments = new ConcurrentHashMap<>();
+
+	/**
+	 * A dependency coordinate.
+	 */
+	public static class Coordinate {
+		private final String group;
+		private final String artifact;
+		private final String version;
+
+		public Coordinate(String group, String artifact, String version) {
+			this.group = group;
+			this.artifact = artifact;
+			this.version = version;
+		}
+
+		/**
+		 * Returns the coordinate in a DEP line such as 'junit junit 4.12', or null if it can't be parsed.
+		 */
+		public static Coordinate parse(String dep) {
+			String[] parts = dep.trim().split("[ :]+");
+			if(parts.length != 3) return null;
+			return new Coordinate(parts[0], parts[1], parts[2]);
+		}
+
+		public String getGroup() {
+			return group;
+		}
+
+		public String getArtifact() {
+			return artifact;
+		}
+
+		public String getVersion() {
+			return version;
+		}
+
+		/**
+		 * Returns the group and artifact, which identify an artifact independent of its version.
+		 */
+		private String getKey() {
+			return group + ":" + artifact;
+		}
+
+		public String toString() {
+			return group + " " + artifact + " " + version;
+		}
+	}
+
+	/**
+	 * The result of resolving a set of coordinates.
+	 */
+	public static class Result {
+		private final List<File> jars;
+		private final List<Coordinate> unresolved;
+
+		public Result(List<File> jars, List<Coordinate> unresolved) {
+			this.jars = jars;
+			this.unresolved = unresolved;
+		}
+
+		/**
+		 * Returns the jar files found locally.
+		 */
+		public List<File> getJars() {
+			return jars;
+		}
+
+		/**
+		 * Returns the coordinates that couldn't be found locally and need to be downloaded.
+		 */
+		public List<Coordinate> getUnresolved() {
+			return unresolved;
+		}
+	}
+
+	/**
+	 * The artifact and dependencies for a resolved coordinate.
+	 */
+	private static class Node {
+		private final File jar;
+		private final List<Coordinate> dependencies;
+
+		public Node(File jar, List<Coordinate> dependencies) {
+			this.jar = jar;
+			this.dependencies = dependencies;
+		}
+	}
+
+	/**
+	 * Creates a resolver.
+	 * @param mavenRepositories directories laid out like ~/.m2/repository.
+	 * @param ivyCaches directories laid out like ~/.ivy2/cache.
+	 */
+	public DependencyResolver(List<File> mavenRepositories, List<File> ivyCaches) {
+		this.mavenRepositories = mavenRepositories;
+		this.ivyCaches = ivyCaches;
+	}
+
+	/**
+	 * Returns a resolver for the Maven repository and Ivy cache in the user's home directory.
+	 */
+	public static DependencyResolver createDefault() {
+		File home = new File(System.getProperty("user.home"));
+		return new DependencyResolver(
+			Collections.singletonList(new File(home, ".m2/repository")),
+			Collections.singletonList(new File(home, ".ivy2/cache"))
+		);
+	}
+
+	/**
+	 * Resolves coordinates and their transitive dependencies.
+	 */
+	public Result resolve(List<Coordinate> coordinates) throws InterruptedException {
+		Map<String, Coordinate> selected = new LinkedHashMap<>();
+		Map<String, Node> resolved = new HashMap<>();
+		List<Coordinate> unresolved = new ArrayList<>();
+
+		List<Coordinate> level = coordinates;
+
+		while(!level.isEmpty()) {
+			// Select the first version of each artifact that hasn't been seen before.
+			List<Coordinate> pending = new ArrayList<>();
+			for(Coordinate coordinate:level) {
+				if(!selected.containsKey(coordinate.getKey())) {
+					selected.put(coordinate.getKey(), coordinate);
+					pending.add(coordinate);
+				}
+			}
+
+			// Resolve the level in parallel.
+			Map<Coordinate, Future<Node>> futures = new LinkedHashMap<>();
+			for(Coordinate coordinate:pending) {
+				futures.put(coordinate, executor.submit(() -> resolveNode(coordinate)));
+			}
+
+			List<Coordinate> nextLevel = new ArrayList<>();
+			for(Map.Entry<Coordinate, Future<Node>> entry:futures.entrySet()) {
+				Node node;
+				try {
+					node = entry.getValue().get();
+				} catch(ExecutionException e) {
+					node = null;
+				}
+
+				if(node == null) {
+					unresolved.add(entry.getKey());
+				} else {
+					resolved.put(entry.getKey().getKey(), node);
+					nextLevel.addAll(node.dependencies);
+				}
+			}
+
+			level = nextLevel;
+		}
+
+		List<File> jars = new ArrayList<>();
+		for(String key:selected.keySet()) {
+			Node node = resolved.get(key);
+			if(node != null && node.jar != null) {
+				jars.add(node.jar);
+			}
+		}
+
+		return new Result(jars, unresolved);
+	}
+
+	/**
+	 * Links resolved jars into the lib directory below dir, where the default classpath finds them.
+	 */
+	public static void materialize(List<File> jars, File dir) throws IOException {
+		Path lib = new File(dir, "lib").toPath();
+		Files.createDirectories(lib);
+
+		for(File jar:jars) {
+			Path target = lib.resolve(jar.getName());
+			if(Files.exists(target)) continue;
+
+			try {
+				Files.createLink(target, jar.toPath());
+			} catch(FileAlreadyExistsException e) {
+			} catch(IOException | UnsupportedOperationException e) {
+				Files.createSymbolicLink(target, jar.toPath());
+			}
+		}
+	}
+
+	/**
+	 * Returns the jar and dependencies for a coordinate, or null if it isn't available locally.
+	 */
+	private Node resolveNode(Coordinate coordinate) throws IOException, JDOMException {
+		for(File repository:mavenRepositories) {
+			File dir = new File(repository, coordinate.group.replace('.', '/') + "/" + coordinate.artifact + "/" + coordinate.version);
+			File pom = new File(dir, coordinate.artifact + "-" + coordinate.version + ".pom");
+			File jar = new File(dir, coordinate.artifact + "-" + coordinate.version + ".jar");
+
+			if(pom.exists()) {
+				Element project = parse(pom).getRootElement();
+				String packaging = getChildText(project, "packaging", "jar");
+
+				if(jar.exists()) {
+					return new Node(jar, readPomDependencies(repository, project));
+				} else if(packaging.equals("pom")) {
+					return new Node(null, readPomDependencies(repository, project));
+				}
+			} else if(jar.exists()) {
+				return new Node(jar, Collections.emptyList());
+			}
+		}
+
+		for(File cache:ivyCaches) {
+			File dir = new File(cache, coordinate.group + "/" + coordinate.artifact);
+			File ivy = new File(dir, "ivy-" + coordinate.version + ".xml");
+			File jar = new File(dir, "jars/" + coordinate.artifact + "-" + coordinate.version + ".jar");
+
+			if(jar.exists()) {
+				List<Coordinate> dependencies = ivy.exists() ? readIvyDependencies(ivy) : Collections.emptyList();
+				return new Node(jar, dependencies);
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns the runtime dependencies of a pom, using the properties and managed versions from
+	 * the pom and its parents.
+	 */
+	private List<Coordinate> readPomDependencies(File repository, Element project) throws IOException, JDOMException {
+		Map<String, String> properties = new HashMap<>();
+		Map<String, String> managedVersions = new HashMap<>();
+		readPomHierarchy(repository, project, properties, managedVersions);
+
+		List<Coordinate> dependencies = new ArrayList<>();
+
+		Element dependenciesElement = getChild(project, "dependencies");
+		if(dependenciesElement == null) return dependencies;
+
+		for(Element dependency:dependenciesElement.getChildren("dependency", project.getNamespace())) {
+			String scope = getChildText(dependency, "scope", "compile");
+			String optional = getChildText(dependency, "optional", "false");
+
+			if(!(scope.equals("compile") || scope.equals("runtime")) || optional.equals("true")) continue;
+
+			String group = substitute(getChildText(dependency, "groupId", ""), properties);
+			String artifact = substitute(getChildText(dependency, "artifactId", ""), properties);
+			String version = getChildText(dependency, "version", managedVersions.get(group + ":" + artifact));
+
+			if(version != null) {
+				dependencies.add(new Coordinate(group, artifact, substitute(version, properties)));
+			}
+		}
+
+		return dependencies;
+	}
+
+	/**
+	 * Reads the properties and managed versions of a pom and its parents. Properties in a child
+	 * pom take precedence over those in its parents.
+	 */
+	private void readPomHierarchy(File repository, Element project, Map<String, String> properties, Map<String, String> managedVersions) throws IOException, JDOMException {
+		Element parent = getChild(project, "parent");
+
+		String group = getChildText(project, "groupId", (parent == null) ? "" : getChildText(parent, "groupId", ""));
+		String version = getChildText(project, "version", (parent == null) ? "" : getChildText(parent, "version", ""));
+
+		putIfAbsent(properties, "project.groupId", group);
+		putIfAbsent(properties, "project.version", version);
+		putIfAbsent(properties, "pom.version", version);
+		putIfAbsent(properties, "version", version);
+
+		Element propertiesElement = getChild(project, "properties");
+		if(propertiesElement != null) {
+			for(Element property:propertiesElement.getChildren()) {
+				putIfAbsent(properties, property.getName(), property.getTextTrim());
+			}
+		}
+
+		Element dependencyManagement = getChild(project, "dependencyManagement");
+		Element managed = (dependencyManagement == null) ? null : getChild(dependencyManagement, "dependencies");
+		if(managed != null) {
+			for(Element dependency:managed.getChildren("dependency", project.getNamespace())) {
+				String key = getChildText(dependency, "groupId", "") + ":" + getChildText(dependency, "artifactId", "");
+				putIfAbsent(managedVersions, key, getChildText(dependency, "version", null));
+			}
+		}
+
+		if(parent != null) {
+			String parentGroup = getChildText(parent, "groupId", "");
+			String parentArtifact = getChildText(parent, "artifactId", "");
+			String parentVersion = getChildText(parent, "version", "");
+
+			File parentPom = new File(repository, parentGroup.replace('.', '/') + "/" + parentArtifact + "/" + parentVersion + "/" + parentArtifact + "-" + parentVersion + ".pom");
+			if(parentPom.exists()) {
+				readPomHierarchy(repository, parse(parentPom).getRootElement(), properties, managedVersions);
+			}
+		}
+
+		// Resolve managed versions with all the properties now known.
+		for(Map.Entry<String, String> entry:managedVersions.entrySet()) {
+			if(entry.getValue() != null) {
+				entry.setValue(substitute(entry.getValue(), properties));
+			}
+		}
+	}
+
+	/**
+	 * Returns the dependencies listed in an ivy.xml file, excluding test dependencies.
+	 */
+	private List<Coordinate> readIvyDependencies(File ivy) throws IOException, JDOMException {
+		List<Coordinate> dependencies = new ArrayList<>();
+
+		Element dependenciesElement = parse(ivy).getRootElement().getChild("dependencies");
+		if(dependenciesElement == null) return dependencies;
+
+		for(Element dependency:dependenciesElement.getChildren("dependency")) {
+			String conf = dependency.getAttributeValue("conf", "");
+			if(conf.startsWith("test")) continue;
+
+			dependencies.add(new Coordinate(
+				dependency.getAttributeValue("org"),
+				dependency.getAttributeValue("name"),
+				dependency.getAttributeValue("rev")
+			));
+		}
+
+		return dependencies;
+	}
+
+	/**
+	 * Returns the parsed xml document for a file, caching documents that have been parsed before.
+	 */
+	private Document parse(File file) throws IOException, JDOMException {
+		Document document = parsedDocuments.get(file.getPath());
+		if(document == null) {
+			document = new SAXBuilder().build(file);
+			parsedDocuments.put(file.getPath(), document);
+		}
+		return document;
+	}
+
+	/**
+	 * Replaces ${name} references in value with their property values.
+	 */
+	private static String substitute(String value, Map<String, String> properties) {
+		Matcher matcher = PROPERTY_PATTERN.matcher(value);
+		StringBuffer result = new StringBuffer();
+		while(matcher.find()) {
+			String replacement = properties.get(matcher.group(1));
+			matcher.appendReplacement(result, Matcher.quoteReplacement((replacement == null) ? matcher.group() : replacement));
+		}
+		matcher.appendTail(result);
+		return result.toString();
+	}
+
+	private static Element getChild(Element element, String name) {
+		return element.getChild(name, element.getNamespace());
+	}
+
+	private static String getChildText(Element element, String name, String defaultValue) {
+		Element child = getChild(element, name);
+		return (child == null) ? defaultValue : child.getTextTrim();
+	}
+
+	private static void putIfAbsent(Map<String, String> map, String key, String value) {
+		if(!map.containsKey(key)) {
+			map.put(key, value);
+		}
+	}
+}
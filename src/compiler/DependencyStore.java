@@ -0,0 +1,242 @@
+package compiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.io.FileUtils;
+
+import com.google.common.hash.Hashing;
+
+/**
+ * A persistent store of downloaded dependencies keyed by their coordinate. Each dependency is
+ * downloaded once, even when requested by several runs at the same time, and is linked into
+ * run directories instead of being copied.
+ */
+public class DependencyStore {
+	private final File storeDir;
+
+	private final ConcurrentHashMap<String, CompletableFuture<Boolean>> inFlight = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates a callable process that downloads a dependency into a directory.
+	 */
+	public interface Downloader {
+		Callable<Process> download(File dir) throws IOException;
+	}
+
+	/**
+	 * A download process that marks the dependency as resolved when it succeeds, and releases
+	 * any runs waiting for it when it finishes or is destroyed.
+	 */
+	private class DownloadProcess extends ForwardingProcess {
+		private final String dep;
+		private final FileLock lock;
+		private final CompletableFuture<Boolean> future;
+		private final AtomicBoolean finished = new AtomicBoolean(false);
+
+		public DownloadProcess(Process process, String dep, FileLock lock, CompletableFuture<Boolean> future) {
+			super(process);
+			this.dep = dep;
+			this.lock = lock;
+			this.future = future;
+		}
+
+		public int waitFor() throws InterruptedException {
+			int exitValue = process.waitFor();
+			finish(exitValue == 0);
+			return exitValue;
+		}
+
+		public void destroy() {
+			process.destroy();
+			finish(false);
+		}
+
+		private void finish(boolean success) {
+			if(finished.getAndSet(true)) return;
+
+			try {
+				if(success) {
+					new File(getEntryDir(dep), "complete").createNewFile();
+				}
+			} catch(IOException e) {
+				success = false;
+			} finally {
+				release(dep, lock, future, success);
+			}
+		}
+	}
+
+	/**
+	 * Creates a dependency store.
+	 * @param storeDir the directory to store dependencies in.
+	 */
+	public DependencyStore(File storeDir) {
+		this.storeDir = storeDir;
+	}
+
+	/**
+	 * Returns whether a dependency has already been downloaded.
+	 */
+	public boolean isResolved(String dep) {
+		return new File(getEntryDir(dep), "complete").exists();
+	}
+
+	/**
+	 * Returns a callable process that downloads a dependency if it isn't already in the store.
+	 * If another run is already downloading it, the process waits for that download instead.
+	 * @param dep the coordinate of the dependency.
+	 * @param downloader creates the download process for a directory.
+	 */
+	public Callable<Process> resolve(String dep, Downloader downloader) {
+		return () -> {
+			if(isResolved(dep)) {
+				return new NullProcess();
+			}
+
+			CompletableFuture<Boolean> future = new CompletableFuture<>();
+			CompletableFuture<Boolean> existing = inFlight.putIfAbsent(dep, future);
+
+			if(existing != null) {
+				return waitForDownload(dep, existing);
+			}
+
+			FileLock lock = null;
+			try {
+				// Lock against other ScratchPad instances downloading the same dependency.
+				File entryDir = getEntryDir(dep);
+				entryDir.mkdirs();
+				lock = lock(new File(entryDir, "lock"));
+
+				if(isResolved(dep)) {
+					release(dep, lock, future, true);
+					return new NullProcess();
+				}
+
+				File filesDir = getFilesDir(dep);
+				FileUtils.deleteDirectory(filesDir);
+				filesDir.mkdirs();
+
+				return new DownloadProcess(downloader.download(filesDir).call(), dep, lock, future);
+			} catch(Exception e) {
+				release(dep, lock, future, false);
+				throw e;
+			}
+		};
+	}
+
+	/**
+	 * Downloads a dependency if it isn't already in the store, waiting for the download to finish.
+	 * Runs that resolve the dependency while it is downloading wait for this download instead of
+	 * starting their own. The downloader must not leave output to be read.
+	 */
+	public void prefetch(String dep, Downloader downloader) throws Exception {
+		Process process = resolve(dep, downloader).call();
+		try {
+			process.waitFor();
+		} finally {
+			process.destroy();
+		}
+	}
+
+	/**
+	 * Links the files of a downloaded dependency into dir. Uses hard links where possible, falling back
+	 * to symbolic links and then copies. Files that already exist in dir are left unchanged.
+	 */
+	public void materialize(String dep, File dir) throws IOException {
+		Path filesDir = getFilesDir(dep).toPath();
+
+		for(File file:FileUtils.listFiles(filesDir.toFile(), null, true)) {
+			Path source = file.toPath();
+			Path target = dir.toPath().resolve(filesDir.relativize(source));
+
+			if(Files.exists(target)) continue;
+
+			Files.createDirectories(target.getParent());
+
+			try {
+				Files.createLink(target, source);
+			} catch(FileAlreadyExistsException e) {
+			} catch(IOException | UnsupportedOperationException e) {
+				try {
+					Files.createSymbolicLink(target, source);
+				} catch(IOException | UnsupportedOperationException e2) {
+					Files.copy(source, target);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Waits for another run to download a dependency, returning a process with the result.
+	 */
+	private Process waitForDownload(String dep, CompletableFuture<Boolean> future) throws InterruptedException {
+		try {
+			if(future.get()) {
+				return new NullProcess();
+			}
+		} catch(ExecutionException e) {
+		}
+
+		return new CompletedProcess(1, "", "Failed to download dependency: " + dep + "\n");
+	}
+
+	/**
+	 * Returns an exclusive lock on a file, waiting until it is available.
+	 */
+	private static FileLock lock(File file) throws IOException {
+		FileChannel channel = new RandomAccessFile(file, "rw").getChannel();
+		try {
+			return channel.lock();
+		} catch(IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Releases the lock for a download and notifies any waiting runs.
+	 */
+	private void release(String dep, FileLock lock, CompletableFuture<Boolean> future, boolean success) {
+		try {
+			if(lock != null) {
+				lock.channel().close();
+			}
+		} catch(IOException e) {
+		}
+
+		inFlight.remove(dep, future);
+		future.complete(success);
+	}
+
+	private File getFilesDir(String dep) {
+		return new File(getEntryDir(dep), "files");
+	}
+
+	/**
+	 * Returns the directory for a dependency, named from the readable part of its coordinate
+	 * and a hash of the whole coordinate.
+	 */
+	private File getEntryDir(String dep) {
+		String readable = dep.replaceAll("[ .]", "_").replaceAll("\\W", "");
+		if(readable.length() > 60) {
+			readable = readable.substring(readable.length() - 60);
+		}
+
+		String hash = Hashing.sha1().hashString(dep, StandardCharsets.UTF_8).toString().substring(0, 12);
+
+		return new File(storeDir, readable + "-" + hash);
+	}
+}
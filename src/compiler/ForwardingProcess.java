@@ -0,0 +1,57 @@
+package compiler;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A process that forwards all calls to another process. Subclasses override methods to
+ * act on the process finishing.
+ */
+public class ForwardingProcess extends Process {
+	protected final Process process;
+
+	public ForwardingProcess(Process process) {
+		this.process = process;
+	}
+
+	public OutputStream getOutputStream() {
+		return process.getOutputStream();
+	}
+
+	public InputStream getInputStream() {
+		return process.getInputStream();
+	}
+
+	public InputStream getErrorStream() {
+		return process.getErrorStream();
+	}
+
+	public int waitFor() throws InterruptedException {
+		return process.waitFor();
+	}
+
+	public int exitValue() {
+		return process.exitValue();
+	}
+
+	public void destroy() {
+		process.destroy();
+	}
+
+	public Process destroyForcibly() {
+		process.destroyForcibly();
+		return this;
+	}
+
+	public boolean isAlive() {
+		return process.isAlive();
+	}
+
+	public long pid() {
+		return process.pid();
+	}
+
+	public ProcessHandle toHandle() {
+		return process.toHandle();
+	}
+}
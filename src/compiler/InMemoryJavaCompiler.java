@@ -0,0 +1,232 @@
+package compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+/**
+ * Compiles Java source code using the system compiler inside the ScratchPad JVM. The compiler and
+ * its file manager are shared between runs so that opened classpath jars stay cached, and the
+ * source and class files are kept in memory instead of being written to disk. The file manager is
+ * replaced when the jars on the classpath change, so that a jar replaced on disk isn't read stale.
+ */
+public class InMemoryJavaCompiler {
+	private static final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+	private static StandardJavaFileManager standardFileManager;
+	private static List<String> standardFileManagerJars;
+
+	/**
+	 * The result of a compilation.
+	 */
+	public static class Result {
+		private final boolean success;
+		private final String diagnostics;
+		private final Map<String, byte[]> classes;
+
+		public Result(boolean success, String diagnostics, Map<String, byte[]> classes) {
+			this.success = success;
+			this.diagnostics = diagnostics;
+			this.classes = classes;
+		}
+
+		/**
+		 * Returns whether compilation completed without errors.
+		 */
+		public boolean isSuccess() {
+			return success;
+		}
+
+		/**
+		 * Returns the errors and warnings reported by the compiler.
+		 */
+		public String getDiagnostics() {
+			return diagnostics;
+		}
+
+		/**
+		 * Returns the compiled bytecode keyed by binary class name.
+		 */
+		public Map<String, byte[]> getClasses() {
+			return classes;
+		}
+	}
+
+	/**
+	 * A source file held in a String.
+	 */
+	private static class StringSource extends SimpleJavaFileObject {
+		private final String contents;
+
+		public StringSource(String filename, String contents) {
+			super(URI.create("string:///" + filename), Kind.SOURCE);
+			this.contents = contents;
+		}
+
+		public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+			return contents;
+		}
+	}
+
+	/**
+	 * A class file written to a byte array.
+	 */
+	private static class ByteArrayClass extends SimpleJavaFileObject {
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		public ByteArrayClass(String className) {
+			super(URI.create("bytes:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+		}
+
+		public OutputStream openOutputStream() {
+			return bytes;
+		}
+	}
+
+	/**
+	 * A file manager that reads from the shared standard file manager and collects class
+	 * files in memory.
+	 */
+	private static class MemoryFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+		private final Map<String, ByteArrayClass> outputs = new LinkedHashMap<>();
+
+		public MemoryFileManager(JavaFileManager fileManager) {
+			super(fileManager);
+		}
+
+		public JavaFileObject getJavaFileForOutput(Location location, String className, Kind kind, FileObject sibling) throws IOException {
+			if(location == StandardLocation.CLASS_OUTPUT && kind == Kind.CLASS) {
+				ByteArrayClass output = new ByteArrayClass(className);
+				outputs.put(className, output);
+				return output;
+			}
+			return super.getJavaFileForOutput(location, className, kind, sibling);
+		}
+
+		public void close() {
+			// Keep the shared file manager open between compilations.
+		}
+
+		public Map<String, byte[]> getClasses() {
+			Map<String, byte[]> classes = new LinkedHashMap<>();
+			for(Map.Entry<String, ByteArrayClass> entry:outputs.entrySet()) {
+				classes.put(entry.getKey(), entry.getValue().bytes.toByteArray());
+			}
+			return classes;
+		}
+	}
+
+	/**
+	 * Returns whether a system Java compiler is available in this JVM.
+	 */
+	public static boolean isAvailable() {
+		return compiler != null;
+	}
+
+	/**
+	 * Compiles a single source file.
+	 * @param filename the name of the source file, such as 'Main.java'.
+	 * @param contents the source code.
+	 * @param dir the directory relative classpath entries are resolved against.
+	 * @param classpath the Java classpath.
+	 */
+	public static Result compile(String filename, String contents, File dir, String classpath) throws IOException {
+		return compile(filename, contents, dir, classpath, Collections.<String>emptyList());
+	}
+
+	/**
+	 * Compiles a single source file with javac options, such as "--release 11" or "-parameters". The source
+	 * is read as UTF-8 unless the options set another encoding.
+	 * @param filename the name of the source file, such as 'Main.java'.
+	 * @param contents the source code.
+	 * @param dir the directory relative classpath entries are resolved against.
+	 * @param classpath the Java classpath.
+	 * @param options the javac options, excluding the classpath, output directory and source files.
+	 */
+	public static synchronized Result compile(String filename, String contents, File dir, String classpath, List<String> options) throws IOException {
+		if(compiler == null) {
+			throw new IOException("No system Java compiler available");
+		}
+
+		List<File> files = Classpath.resolve(dir, classpath);
+		List<String> jars = getJars(files);
+
+		if(standardFileManager != null && !jars.equals(standardFileManagerJars)) {
+			standardFileManager.close();
+			standardFileManager = null;
+		}
+
+		if(standardFileManager == null) {
+			standardFileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+			standardFileManagerJars = jars;
+		}
+
+		standardFileManager.setLocation(StandardLocation.CLASS_PATH, files);
+
+		StringWriter diagnostics = new StringWriter();
+		MemoryFileManager fileManager = new MemoryFileManager(standardFileManager);
+
+		List<String> allOptions = new ArrayList<>();
+		if(!options.contains("-encoding")) {
+			allOptions.add("-encoding");
+			allOptions.add("utf-8");
+		}
+		allOptions.addAll(options);
+
+		boolean success;
+		try {
+			success = compiler.getTask(diagnostics, fileManager, null, allOptions, null, Arrays.asList(new StringSource(filename, contents))).call();
+		} catch(IllegalArgumentException e) {
+			// An option the compiler doesn't recognize.
+			return new Result(false, e.getMessage() + "\n", Collections.<String, byte[]>emptyMap());
+		}
+
+		return new Result(success, diagnostics.toString(), fileManager.getClasses());
+	}
+
+	/**
+	 * Returns the path, modification time and size of each file on a classpath that isn't a directory,
+	 * which are the archives the file manager keeps open. Directories are listed again for each compilation.
+	 */
+	private static List<String> getJars(List<File> files) {
+		List<String> jars = new ArrayList<>();
+		for(File file:files) {
+			if(!file.isDirectory()) {
+				jars.add(file.getAbsolutePath() + ":" + file.lastModified() + ":" + file.length());
+			}
+		}
+		return jars;
+	}
+
+	/**
+	 * Writes compiled classes as class files below dir.
+	 */
+	public static void writeClasses(File dir, Map<String, byte[]> classes) throws IOException {
+		for(Map.Entry<String, byte[]> entry:classes.entrySet()) {
+			File classFile = new File(dir, entry.getKey().replace('.', File.separatorChar) + Kind.CLASS.extension);
+			classFile.getParentFile().mkdirs();
+			Files.write(classFile.toPath(), entry.getValue());
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs the @Benchmark methods of a Java source with JMH. The benchmark harness is generated when
+ * the source is compiled with JMH's annotation processor, and this adds the options to the run
+ * commandline that select the benchmarks in the source and set the forks, iterations and profilers.
+ */
+public class JmhHarness {
+	/** A @Benchmark annotation, any annotations after it, and the name of the method it's on. */
+	private static final Pattern BENCHMARK_PATTERN = Pattern.compile("@(?:org\\.openjdk\\.jmh\\.annotations\\.)?Benchmark\\b(?:\\s*@[\\w.]+(?:\\s*\\([^)]*\\))?)*[^;{}()=@]*?\\b(\\w+)\\s*\\(");
+
+	private static final CommentSyntax JAVA_COMMENTS = new CommentSyntax("//", "/*", "*/");
+
+	private final int forks;
+	private final int warmupIterations;
+	private final int iterations;
+	private final int warmupTime;
+	private final int time;
+	private final List<String> profilers;
+
+	/**
+	 * Creates a harness. A count or time of -1 uses JMH's default, or any value set by annotations in the source.
+	 * @param forks the number of JVMs to fork for each benchmark.
+	 * @param warmupIterations the number of warm-up iterations in each fork.
+	 * @param iterations the number of measured iterations in each fork.
+	 * @param warmupTime the length of each warm-up iteration in seconds.
+	 * @param time the length of each measured iteration in seconds.
+	 * @param profilers the JMH profilers to run with, such as "gc" for the allocation rate.
+	 */
+	public JmhHarness(int forks, int warmupIterations, int iterations, int warmupTime, int time, List<String> profilers) {
+		this.forks = forks;
+		this.warmupIterations = warmupIterations;
+		this.iterations = iterations;
+		this.warmupTime = warmupTime;
+		this.time = time;
+		this.profilers = profilers;
+	}
+
+	/**
+	 * Returns the names of the methods annotated with @Benchmark in the source, ignoring comments.
+	 */
+	public static List<String> findBenchmarks(String contents) {
+		List<String> benchmarks = new ArrayList<>();
+
+		Matcher matcher = BENCHMARK_PATTERN.matcher(JAVA_COMMENTS.normalize(contents));
+		while(matcher.find()) {
+			if(!benchmarks.contains(matcher.group(1))) {
+				benchmarks.add(matcher.group(1));
+			}
+		}
+
+		return benchmarks;
+	}
+
+	/**
+	 * Returns the arguments to org.openjdk.jmh.Main that run the benchmarks in a class.
+	 * @param name the name of the class containing the benchmarks.
+	 */
+	public List<String> getArguments(String name, List<String> benchmarks) {
+		List<String> args = new ArrayList<>();
+
+		// Match the benchmarks of this class only, in whatever package it is in, and not those of any classes on the classpath.
+		args.add("^(.+\\.)?" + name + "\\.(" + String.join("|", benchmarks) + ")$");
+
+		if(forks >= 0) {
+			args.add("-f");
+			args.add(String.valueOf(forks));
+		}
+		if(warmupIterations >= 0) {
+			args.add("-wi");
+			args.add(String.valueOf(warmupIterations));
+		}
+		if(iterations >= 0) {
+			args.add("-i");
+			args.add(String.valueOf(iterations));
+		}
+		if(warmupTime >= 0) {
+			args.add("-w");
+			args.add(warmupTime + "s");
+		}
+		if(time >= 0) {
+			args.add("-r");
+			args.add(time + "s");
+		}
+		for(String profiler:profilers) {
+			args.add("-prof");
+			args.add(profiler);
+		}
+
+		return args;
+	}
+}
@@ -2,131 +2,466 @@ package compiler;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 
 import syntaxhighlighter.brush.Brush;
 import util.StringUtil;
 
 public class Language {
-	private final Map<String, File> dependencyDirs = new HashMap<>();
+	private static final String SCRATCHPAD_CLASSPATH = Classpath.getScratchPadClasspath();
+	
+	/** A dependency in a language without a line comment syntax configured, which is found anywhere in a line. */
+	private static final Pattern DEP_PATTERN = Pattern.compile("// DEP: (.*)");
+	
+	/** The version of the Java platform in the output of java -XshowSettings:properties, such as "1.8" or "17". */
+	private static final Pattern JAVA_VERSION_PATTERN = Pattern.compile("java\\.specification\\.version = (\\S+)");
+	
+	/** The javac options that set the classpath or output directory, which the in-memory compiler sets itself. */
+	private static final List<String> IN_MEMORY_LOCATION_OPTIONS = Arrays.asList("-cp", "-classpath", "--class-path", "-d");
+	
+	/** The javac options that set the version of the class files, which can't be combined with --release. */
+	private static final List<String> VERSION_OPTIONS = Arrays.asList("--release", "-source", "--source", "-target", "--target");
+	
+	/** The feature versions of java executables, keyed by the identity of the executable. */
+	private static final Map<String, Integer> javaVersions = new ConcurrentHashMap<>();
 	
 	private String name;
 	private String extension;
-	private Brush brush;
-	private List<String> compilers;
-	private String run;
-	private String filenameMatcher;
+	private String brushName;
+	private Brush brush = null;
+	private List<CommandTemplate> compilers;
+	private CommandTemplate run;
+	private Pattern filenameMatcher;
+	private boolean mainTypeFilename;
 	private String template;
 	private String defaultInput;
 	private String standardImportJar;
-	private String initCommand;
+	private CommandTemplate initCommand;
 	private String depCommand;
 	private String defaultClasspath;
+	private String compileMode;
+	private Runner runner;
+	private ProcessPool pool;
+	private CommandTemplate poolCommand;
+	private CommandTemplate poolProgram;
+	private Workspace workspace;
+	private ResourceLimits limits;
+	private CommentSyntax comments;
+	private JmhHarness jmh;
+	private SourceScanner scanner;
+	private volatile SourceScanner.Scan lastScan = null;
 
 	/**
 	 * Creates a new language from the paramters. Compiler, run, filenameMatcher, defaultInput, and standardImportJar are optional.
-	 * Commandlines are split by spaces and then variable substitutions are performed on $NAME, $EXT, and $CLASSPATH.
+	 * Commandlines are parsed into templates once here, and variables such as $NAME, $EXT, $CLASSPATH, $WORKDIR, and $JOBS
+	 * are substituted for each process, as described in {@link CommandTemplate}.
 	 * @param name the name of the programming language.
 	 * @param extension the file extension used for this language.
-	 * @param brush the name of the brush to use for syntax highlighting such as 'BrushPlain'. Must exist in the JavaSyntaxHighlighter jar.
+	 * @param brushName the name of the brush to use for syntax highlighting such as 'BrushPlain', which is loaded when it is first used.
 	 * @param compiler the commandline to compile the program, or null if no compilation is necessary.
 	 * @param run the commandline to run the program, or null if the program is run by executing it directly.
-	 * @param filenameMatcher the pattern to use to detect the filename from the file contents, or null for a default name.
+	 * @param filenameMatcher the pattern to use to detect the filename from the file contents, 'mainType' to use the name of the
+	 * public type with the main method, or null for a default name.
 	 * @param template the initial contents for the source code template.
 	 * @param defaultInput the initial contents for the program input, or null if there is no default input.
 	 * @param standardImportJar the jar that contains the libraries for the standard imports.
 	 * @param initCommand the command to run before others to initialize a project.
 	 * @param depCommand the command used to download dependencies.
 	 * @param defaultClasspath the classpath to use if it is not specified elsewhere.
+	 * @param compileMode 'inMemory' to compile Java inside this JVM with the options of the javac compiler command instead of
+	 * running it, or null to run the compilers.
+	 * @param runner the warm JVMs used to run Java programs, or null to run programs with the run commandline.
+	 * @param pool the processes started ahead of time to run programs, or null if processes are started for each run.
+	 * @param workspace the reusable directories to run programs in, or null to use a new temporary directory for each run.
+	 * @param limits the limits on the resources used by each run, which can be overridden by the source.
+	 * @param comments the comment syntax used to tell whether an edit changes the program.
+	 * @param jmh the harness that runs the @Benchmark methods of the program with JMH, or null to run the program itself.
 	 */
-	public Language(String name, String extension, Brush brush, List<String> compilers, String run,
-			String filenameMatcher, String template, String defaultInput, String standardImportJar, String initCommand, String depCommand, String defaultClasspath) {
+	public Language(String name, String extension, String brushName, List<String> compilers, String run,
+			String filenameMatcher, String template, String defaultInput, String standardImportJar, String initCommand, String depCommand, String defaultClasspath,
+			String compileMode, Runner runner, ProcessPool pool, Workspace workspace, ResourceLimits limits, CommentSyntax comments, JmhHarness jmh) {
 		
 		this.name = name;
 		this.extension = extension;
-		this.brush = brush;
-		this.compilers = compilers;
-		this.run = run;
-		this.filenameMatcher = filenameMatcher;
+		this.brushName = brushName;
+		this.compilers = new ArrayList<>();
+		for(String compiler:compilers) {
+			this.compilers.add(CommandTemplate.parse(compiler));
+		}
+		this.run = (run == null) ? null : CommandTemplate.parse(run);
+		this.mainTypeFilename = "mainType".equals(filenameMatcher);
+		this.filenameMatcher = (filenameMatcher == null || mainTypeFilename) ? null : Pattern.compile(filenameMatcher);
 		this.template = template;
 		this.defaultInput = defaultInput;
 		this.standardImportJar = standardImportJar;
-		this.initCommand = initCommand;
+		this.initCommand = (initCommand == null) ? null : CommandTemplate.parse(initCommand);
 		this.depCommand = depCommand;
 		this.defaultClasspath = defaultClasspath;
+		this.compileMode = compileMode;
+		this.runner = runner;
+		this.pool = pool;
+		this.poolCommand = (pool == null) ? null : CommandTemplate.parse(pool.getCommand());
+		this.poolProgram = (pool == null) ? null : CommandTemplate.parse(pool.getProgram());
+		this.workspace = workspace;
+		this.limits = limits;
+		this.comments = comments;
+		this.jmh = jmh;
+		this.scanner = new SourceScanner(comments);
 	}
 	
 	/**
-	 * Returns a list of callable processes for any compilers that are needed.
+	 * Returns a list of callable processes for any compilers that are needed, including the
+	 * setup steps before compiling.
 	 * @param dir the directory to run in.
 	 * @param name the name of the file excluding the extension.
 	 * @param classpath the Java classpath.
 	 */
 	public List<Callable<Process>> createCompilers(File dir, String name, String contents, String classpath) throws IOException {
 		List<Callable<Process>> processes = new ArrayList<>();
+		processes.addAll(createSetupSteps(dir, name, contents, classpath));
+		processes.addAll(createCompileSteps(dir, name, contents, classpath));
+		return processes;
+	}
+	
+	/**
+	 * Returns a list of callable processes to initialize the project and download dependencies.
+	 * @param dir the directory to run in.
+	 * @param name the name of the file excluding the extension.
+	 * @param classpath the Java classpath.
+	 */
+	public List<Callable<Process>> createSetupSteps(File dir, String name, String contents, String classpath) throws IOException {
+		List<Callable<Process>> processes = new ArrayList<>();
 
 		if(initCommand != null) {
 			processes.add(createProcess(dir, name, initCommand, classpath));
 		}
 		
 		if(depCommand != null) {
-			// Download any dependencies marked in the source code as "// DEP: ..."
-			for(String line:contents.split("\n")) {
-				Matcher matcher = Pattern.compile("// DEP: (.*)").matcher(line);
-				if(matcher.find()) {
-					String dep = matcher.group(1);
-					processes.addAll(createDepCommand(dir, dep));
-				}
+			processes.addAll(createDepCommands(dir, getDependencies(contents)));
+		}
+		
+		if(jmh != null && JmhHarness.findBenchmarks(contents).isEmpty()) {
+			processes.add(0, () -> new CompletedProcess(1, "", "No @Benchmark methods found. Annotate the methods to measure with @Benchmark.\n"));
+		}
+		
+		return processes;
+	}
+	
+	/**
+	 * Returns the dependencies marked in the source code as "// DEP: ...", or an empty list if this
+	 * language doesn't download dependencies. Languages configured without a line comment syntax
+	 * match "// DEP: " anywhere in a line, as the scanner can't tell which lines are comments.
+	 */
+	public List<String> getDependencies(String contents) {
+		List<String> deps = new ArrayList<>();
+		
+		if(depCommand == null) {
+			return deps;
+		} else if(comments.getLine() == null) {
+			Matcher matcher = DEP_PATTERN.matcher(contents);
+			while(matcher.find()) {
+				deps.add(matcher.group(1).trim());
 			}
+		} else {
+			deps.addAll(scan(contents).getDirectives("DEP"));
 		}
 		
-		for(String compiler:compilers) {
-			processes.add(createProcess(dir, name, compiler, classpath));
+		return deps;
+	}
+	
+	/**
+	 * Downloads dependencies into the dependency store ahead of a run, discarding the download output.
+	 * A run that needs a dependency while it is being prefetched waits for the prefetch to finish
+	 * instead of starting another download.
+	 */
+	public void prefetchDependencies(List<String> deps) throws Exception {
+		for(String dep:getUnresolvedDependencies(deps)) {
+			Languages.getDependencyStore().prefetch(dep, createDownloader(dep, true));
+		}
+	}
+	
+	/**
+	 * Returns a list of callable processes that compile the source file.
+	 * @param dir the directory to run in.
+	 * @param name the name of the file excluding the extension.
+	 * @param classpath the Java classpath.
+	 */
+	public List<Callable<Process>> createCompileSteps(File dir, String name, String contents, String classpath) throws IOException {
+		List<Callable<Process>> processes = new ArrayList<>();
+		
+		if(isInMemoryCompile()) {
+			processes.add(createInMemoryCompiler(dir, name, contents, classpath, getInMemoryOptions(name, classpath)));
+		} else {
+			for(CommandTemplate compiler:compilers) {
+				processes.add(createProcess(dir, name, compiler, classpath));
+			}
 		}
 		
 		return processes;
 	}
+	
+	/**
+	 * Returns the key identifying the outputs of the compile steps in a build cache, or null if there
+	 * are no compile steps. The key covers the source, the expanded compiler commandlines, the classpath,
+	 * and the identity of the compiler binaries. $WORKDIR is left unexpanded, so builds in different
+	 * directories share a key.
+	 * @param name the name of the file excluding the extension.
+	 * @param classpath the Java classpath.
+	 */
+	public String getBuildKey(String name, String contents, String classpath) {
+		List<String> parts = new ArrayList<>();
+		parts.add(name + "." + extension);
+		parts.add(contents);
+		parts.add(classpath);
+		
+		if(isInMemoryCompile()) {
+			parts.add("inMemory");
+			parts.add(System.getProperty("java.home"));
+			parts.add(System.getProperty("java.vm.version"));
+			parts.add(String.join(" ", getInMemoryOptions(name, classpath)));
+		} else if(compilers.isEmpty()) {
+			return null;
+		} else {
+			for(CommandTemplate compiler:compilers) {
+				List<String> args = compiler.render(getVariables(null, name, classpath));
+				parts.add(String.join(" ", args));
+				parts.add(getExecutableIdentity(args.isEmpty() ? "" : args.get(0)));
+			}
+		}
+		
+		return BuildCache.getKey(parts);
+	}
+	
+	/**
+	 * Returns a string identifying the version of an executable from the real path, size and
+	 * modification time of the file it resolves to on the PATH.
+	 */
+	private static String getExecutableIdentity(String command) {
+		List<File> candidates = new ArrayList<>();
+		if(command.contains(File.separator)) {
+			candidates.add(new File(command));
+		} else {
+			String path = System.getenv("PATH");
+			if(path != null) {
+				for(String dir:path.split(File.pathSeparator)) {
+					candidates.add(new File(dir, command));
+				}
+			}
+		}
+		
+		for(File candidate:candidates) {
+			if(candidate.isFile() && candidate.canExecute()) {
+				try {
+					File real = candidate.toPath().toRealPath().toFile();
+					return real.getPath() + ":" + real.length() + ":" + real.lastModified();
+				} catch(IOException e) {
+				}
+			}
+		}
+		
+		return command;
+	}
+	
+	/**
+	 * Returns whether Java sources are compiled inside this JVM rather than by the compiler commands.
+	 * Falls back to the compiler commands if no system compiler is available, such as when running on a JRE,
+	 * or if they aren't a single javac command whose options the system compiler accepts.
+	 */
+	private boolean isInMemoryCompile() {
+		return "inMemory".equals(compileMode) && InMemoryJavaCompiler.isAvailable()
+			&& compilers.size() == 1 && new File(compilers.get(0).render(getVariables(null, "", "")).get(0)).getName().equals("javac");
+	}
+	
+	/**
+	 * Returns the options to compile in memory with: the options of the javac command except for the source file,
+	 * classpath and output directory, and a --release option if the program is run on an older version of Java
+	 * than this JVM and the command doesn't set the version itself.
+	 * @param name the name of the file excluding the extension.
+	 * @param classpath the Java classpath.
+	 */
+	private List<String> getInMemoryOptions(String name, String classpath) {
+		List<String> args = compilers.get(0).render(getVariables(null, name, classpath));
+		List<String> options = new ArrayList<>();
+		boolean versionSet = false;
+		
+		for(int i = 1; i < args.size(); i++) {
+			String arg = args.get(i);
+			if(IN_MEMORY_LOCATION_OPTIONS.contains(arg)) {
+				i++;
+			} else if(!arg.equals(name + "." + extension)) {
+				versionSet |= VERSION_OPTIONS.contains(arg) || arg.startsWith("--release=");
+				options.add(arg);
+			}
+		}
+		
+		int runVersion = getJavaVersion((run == null) ? "java" : run.render(getVariables(null, name, classpath)).get(0));
+		if(!versionSet && runVersion > 0 && runVersion < Runtime.version().feature()) {
+			options.add("--release");
+			options.add(String.valueOf(runVersion));
+		}
+		
+		return options;
+	}
+	
+	/**
+	 * Returns the feature version of a java executable, such as 8 or 17, or -1 if it can't be found. The
+	 * version is read from the executable once, and again only if the executable changes.
+	 */
+	private static int getJavaVersion(String javaCommand) {
+		return javaVersions.computeIfAbsent(getExecutableIdentity(javaCommand), identity -> readJavaVersion(javaCommand));
+	}
+	
+	private static int readJavaVersion(String javaCommand) {
+		try {
+			Process process = new ProcessBuilder(javaCommand, "-XshowSettings:properties", "-version").redirectErrorStream(true).start();
+			String output;
+			try(InputStream inputStream = process.getInputStream()) {
+				output = IOUtils.toString(inputStream, StandardCharsets.UTF_8);
+			} finally {
+				process.waitFor();
+			}
+			
+			Matcher matcher = JAVA_VERSION_PATTERN.matcher(output);
+			if(!matcher.find()) return -1;
+			
+			String version = matcher.group(1);
+			return Integer.parseInt(version.startsWith("1.") ? version.substring(2) : version);
+		} catch(IOException | NumberFormatException e) {
+			return -1;
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return -1;
+		}
+	}
+	
+	/**
+	 * Creates a callable process that compiles the source in memory and writes the
+	 * resulting class files to dir, reporting any diagnostics as error output.
+	 */
+	private Callable<Process> createInMemoryCompiler(File dir, String name, String contents, String classpath, List<String> options) {
+		return () -> {
+			InMemoryJavaCompiler.Result result = InMemoryJavaCompiler.compile(name + "." + extension, contents, dir, classpath, options);
+			if(!result.isSuccess()) {
+				return new CompletedProcess(1, "", result.getDiagnostics());
+			}
+			InMemoryJavaCompiler.writeClasses(dir, result.getClasses());
+			return new CompletedProcess(0, "", result.getDiagnostics());
+		};
+	}
 
 	/**
-	 * Creates callable processes to copy a dependency dep into the directory dir.
+	 * Creates callable processes to link dependencies into the directory dir. Dependencies found in the
+	 * local repositories are resolved together in-process, and only the rest are downloaded by the depCommand.
 	 */
-	private List<Callable<Process>> createDepCommand(File dir, String dep) throws IOException {
+	private List<Callable<Process>> createDepCommands(File dir, List<String> deps) throws IOException {
 		List<Callable<Process>> processes = new ArrayList<>();
+		List<File> jars = new ArrayList<>();
 		
-		File dependencyDir = dependencyDirs.get(dep);
+		for(String dep:getUnresolvedDependencies(deps, jars)) {
+			processes.addAll(createDepCommand(dir, dep));
+		}
 		
-		if(dependencyDir == null) {
-			// Create directory to store dependency.
-			File newDependencyDir = Files.createTempDirectory("dependency-" + dep.replaceAll("[ .]", "_").replaceAll("\\W", "") + "-").toFile();
-			dependencyDir = newDependencyDir;
-
-			// Create process to download dependency.
-			processes.add(createCallable(new ProcessBuilder()
-				.directory(dependencyDir)
-				.command(Arrays.asList((depCommand + " " + dep).split(" +")))));
-			
-			processes.add(() -> {
-				dependencyDirs.put(dep, newDependencyDir);
+		if(!jars.isEmpty()) {
+			processes.add(0, () -> {
+				DependencyResolver.materialize(jars, dir);
 				return new NullProcess();
 			});
 		}
 		
-		// Create process to copy dependency to dir.
-		processes.add(createCopyProcess(dependencyDir, dir));
+		return processes;
+	}
+	
+	private List<String> getUnresolvedDependencies(List<String> deps) throws IOException {
+		return getUnresolvedDependencies(deps, new ArrayList<>());
+	}
+	
+	/**
+	 * Resolves dependencies against the local repositories, adding the jars found to jars, and returns
+	 * the dependencies that need to be downloaded.
+	 */
+	private List<String> getUnresolvedDependencies(List<String> deps, List<File> jars) throws IOException {
+		List<DependencyResolver.Coordinate> coordinates = new ArrayList<>();
+		List<String> remaining = new ArrayList<>();
+		for(String dep:deps) {
+			DependencyResolver.Coordinate coordinate = DependencyResolver.Coordinate.parse(dep);
+			if(coordinate == null) {
+				remaining.add(dep);
+			} else {
+				coordinates.add(coordinate);
+			}
+		}
+		
+		if(!coordinates.isEmpty()) {
+			DependencyResolver.Result result;
+			try {
+				result = Languages.getDependencyResolver().resolve(coordinates);
+			} catch(InterruptedException e) {
+				throw new InterruptedIOException("Interrupted resolving dependencies");
+			}
+			
+			jars.addAll(result.getJars());
+			
+			for(DependencyResolver.Coordinate coordinate:result.getUnresolved()) {
+				remaining.add(coordinate.toString());
+			}
+		}
+		
+		return remaining;
+	}
+
+	/**
+	 * Creates callable processes to download a dependency dep into the dependency store if
+	 * necessary, and link it into the directory dir.
+	 */
+	private List<Callable<Process>> createDepCommand(File dir, String dep) throws IOException {
+		List<Callable<Process>> processes = new ArrayList<>();
+		
+		DependencyStore dependencyStore = Languages.getDependencyStore();
+		
+		// Create process to download dependency.
+		processes.add(dependencyStore.resolve(dep, createDownloader(dep, false)));
+		
+		// Create process to link dependency into dir.
+		processes.add(() -> {
+			dependencyStore.materialize(dep, dir);
+			return new NullProcess();
+		});
 		
 		return processes;
 	}
 
+	/**
+	 * Returns a downloader that runs the depCommand for a dependency.
+	 * @param discardOutput whether to discard the output rather than leaving it to be read by the caller.
+	 */
+	private DependencyStore.Downloader createDownloader(String dep, boolean discardOutput) {
+		return dependencyDir -> {
+			ProcessBuilder processBuilder = new ProcessBuilder()
+				.directory(dependencyDir)
+				.command(Arrays.asList((depCommand + " " + dep).split(" +")));
+			
+			if(discardOutput) {
+				processBuilder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+				processBuilder.redirectError(ProcessBuilder.Redirect.DISCARD);
+			}
+			
+			return createCallable(processBuilder);
+		};
+	}
+
 	/**
 	 * Returns a callable process to run a file in this language.
 	 * @param dir the directory to run in.
@@ -134,35 +469,139 @@ public class Language {
 	 * @param classpath the Java classpath.
 	 */
 	public Callable<Process> runProgram(File dir, String name, String contents, String classpath) throws IOException {
+		return runProgram(dir, name, contents, classpath, false, null);
+	}
+	
+	/**
+	 * Returns a callable process to run a file in this language. Programs that use a pseudo-terminal,
+	 * an input file, or process limits are started as a new process rather than on a warm runner.
+	 * @param pty whether to run the program in a pseudo-terminal instead of with pipes.
+	 * @param inputFile the file to connect to the standard input of the program, or null to use a pipe.
+	 */
+	public Callable<Process> runProgram(File dir, String name, String contents, String classpath, boolean pty, File inputFile) throws IOException {
+		ResourceLimits limits = getLimits(contents);
+		
+		// The runner JVMs are shared between runs, so can't have limits applied to a single run.
+		if(runner != null && !pty && inputFile == null && !limits.hasProcessLimits()) {
+			return () -> runner.start(dir, name, classpath);
+		}
+		
+		List<String> command = new ArrayList<>();
 		if(run == null) {
-			return createCallable(new ProcessBuilder()
-				.directory(dir)
-				.command(new File(dir, "main").getPath()));
+			command.add(new File(dir, "main").getPath());
 		} else {
-			return createProcess(dir, name, run, classpath);
+			command.addAll(run.render(getVariables(dir, name, classpath)));
+		}
+		
+		if(jmh != null) {
+			command.addAll(jmh.getArguments(name, JmhHarness.findBenchmarks(contents)));
+		}
+		
+		command = limits.wrap(command);
+		
+		ProcessBuilder processBuilder = new ProcessBuilder()
+			.directory(dir)
+			.command(pty ? Pty.wrap(command) : command);
+		
+		if(inputFile != null) {
+			processBuilder.redirectInput(ProcessBuilder.Redirect.from(inputFile));
+		}
+		
+		return createCallable(processBuilder);
+	}
+	
+	/**
+	 * Returns the limits on the resources used by a run of the source, including any limits set
+	 * in the source with a "// LIMIT: ..." directive.
+	 */
+	public ResourceLimits getLimits(String contents) {
+		return limits.withDirectives(contents);
+	}
+	
+	/**
+	 * Returns the source without comments or insignificant whitespace, so that sources that differ only
+	 * in those have the same normalized text.
+	 */
+	public String normalize(String contents) {
+		return comments.normalize(contents);
+	}
+
+	/**
+	 * Returns a process started ahead of time to run a program, or null if there is none ready.
+	 * Starts replacements for the process in the background.
+	 * @param classpath the Java classpath.
+	 */
+	public ProcessPool.PooledProcess takePooledProcess(String classpath) {
+		return pool.take(classpath, dir -> createPoolProcess(dir, classpath).call());
+	}
+	
+	/**
+	 * Starts processes to run programs in the background if there is a pool that isn't full.
+	 * @param classpath the Java classpath.
+	 */
+	public void fillPool(String classpath) {
+		if(pool != null) {
+			pool.fill(classpath, dir -> createPoolProcess(dir, classpath).call());
 		}
 	}
+	
+	/**
+	 * Returns a callable process that starts a process for the pool, with this language's resource limits applied.
+	 */
+	private Callable<Process> createPoolProcess(File dir, String classpath) {
+		return createCallable(new ProcessBuilder()
+			.directory(dir)
+			.command(limits.wrap(poolCommand.render(getVariables(dir, "", classpath)))));
+	}
+	
+	/**
+	 * Returns a callable process that runs a program on a process from the pool.
+	 * @param pooled the process from the pool.
+	 * @param name the name of the file excluding the extension.
+	 */
+	public Callable<Process> runProgram(ProcessPool.PooledProcess pooled, String name) {
+		String program = String.join(" ", poolProgram.render(getVariables(null, name, "")));
+		
+		return pooled.start(program);
+	}
+	
+	/**
+	 * Returns whether programs are run on processes started ahead of time.
+	 */
+	public boolean hasPool() {
+		return pool != null;
+	}
 
 	/**
 	 * Returns a builder for a new process.
 	 * @param dir the directory to run in.
 	 * @param name the name of the file excluding the extension.
-	 * @param line the commandline to execute. The line is separated by spaces and then
-	 *             variable substitutions are performed on $NAME, $EXT, and $CLASSPATH.
+	 * @param command the commandline to execute.
 	 * @param classpath the Java classpath.
 	 */
-	private Callable<Process> createProcess(File dir, String name, String line, String classpath) throws IOException {
-		String[] args = line.split(" ");
-		for(int i = 0; i < args.length; i++) {
-			args[i] = args[i]
-				.replaceAll("\\$CLASSPATH", classpath)
-				.replaceAll("\\$NAME", name)
-				.replaceAll("\\$EXT", extension);
-		}
-		
+	private Callable<Process> createProcess(File dir, String name, CommandTemplate command, String classpath) throws IOException {
 		return createCallable(new ProcessBuilder()
 			.directory(dir)
-			.command(args));
+			.command(command.render(getVariables(dir, name, classpath))));
+	}
+	
+	/**
+	 * Returns the values of the variables in commandlines.
+	 * @param dir the directory to run in, or null to leave $WORKDIR unexpanded.
+	 * @param name the name of the file excluding the extension.
+	 * @param classpath the Java classpath.
+	 */
+	private Map<CommandTemplate.Variable, String> getVariables(File dir, String name, String classpath) {
+		Map<CommandTemplate.Variable, String> values = new EnumMap<>(CommandTemplate.Variable.class);
+		values.put(CommandTemplate.Variable.NAME, name);
+		values.put(CommandTemplate.Variable.EXT, extension);
+		values.put(CommandTemplate.Variable.CLASSPATH, classpath);
+		values.put(CommandTemplate.Variable.SCRATCHPAD, SCRATCHPAD_CLASSPATH);
+		values.put(CommandTemplate.Variable.JOBS, String.valueOf(Runtime.getRuntime().availableProcessors()));
+		if(dir != null) {
+			values.put(CommandTemplate.Variable.WORKDIR, dir.getAbsolutePath());
+		}
+		return values;
 	}
 	
 	/**
@@ -194,9 +633,12 @@ public class Language {
 	}
 
 	/**
-	 * Returns the brush to use for syntax highlighting.
+	 * Returns the brush to use for syntax highlighting, loading it the first time.
 	 */
-	public Brush getBrush() {
+	public synchronized Brush getBrush() {
+		if(brush == null) {
+			brush = Languages.getBrush(brushName);
+		}
 		return brush;
 	}
 	
@@ -211,7 +653,7 @@ public class Language {
 	 * Returns the command used to initialize the project, or null if there isn't any.
 	 */
 	public String getInitCommand() {
-		return initCommand;
+		return (initCommand == null) ? null : initCommand.getLine();
 	}
 	
 	/**
@@ -228,29 +670,47 @@ public class Language {
 		return defaultClasspath;
 	}
 
+	/**
+	 * Returns the reusable directories to run programs in, or null if each run uses a new temporary directory.
+	 */
+	public Workspace getWorkspace() {
+		return workspace;
+	}
+	
+	/**
+	 * Returns the compile mode, or null if the compilers are run as processes.
+	 */
+	public String getCompileMode() {
+		return compileMode;
+	}
+
 	/**
 	 * Returns the detected filename, excluding extension, from the file contents
 	 * or a default if it can't be detected.
 	 */
 	public String getFileName(String contents) {
-		if(filenameMatcher == null) {
-			return "Main";
-		} else {
-			String match = StringUtil.match(contents, filenameMatcher);
-			return (match == null) ? "Main" : match;
+		String match = null;
+		if(mainTypeFilename) {
+			match = scan(contents).getMainType();
+		} else if(filenameMatcher != null) {
+			match = StringUtil.match(contents, filenameMatcher);
 		}
+		return (match == null) ? "Main" : match;
 	}
 
 	/**
-	 * Creates a callable process that copies files from source to destination.
+	 * Returns the scan of the source, reusing the last scan if the source hasn't changed since, as the
+	 * filename and dependencies are both needed for each run.
 	 */
-	private static Callable<Process> createCopyProcess(File source, File destination) {
-		return () -> {
-			FileUtils.copyDirectory(source, destination);
-			return new NullProcess();
-		};
+	private SourceScanner.Scan scan(String contents) {
+		SourceScanner.Scan scan = lastScan;
+		if(scan == null || !scan.getContents().equals(contents)) {
+			scan = scanner.scan(contents);
+			lastScan = scan;
+		}
+		return scan;
 	}
-	
+
 	/**
 	 * Creates a callable process from a process builder.
 	 */
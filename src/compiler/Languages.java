@@ -1,67 +1,284 @@
 package compiler;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.jdom2.*;
+import org.jdom2.JDOMException;
 import org.jdom2.input.SAXBuilder;
 
+import com.google.common.hash.Hashing;
+
 import syntaxhighlighter.brush.*;
 
 /**
- * Parses and retrieves the list of configured languages.
+ * Parses and retrieves the list of configured languages. Only the name and extension of each language
+ * are read at startup, and a language is created from its configuration when it is first used. The
+ * parsed configuration is kept in a snapshot keyed by the configuration file's modification time and
+ * hash, so the XML is only parsed again when it changes.
  */
 public class Languages {
-	private static List<Language> languages = new Languages().readLanguages();
+	/** The version of the snapshot format, which is changed to ignore snapshots from older versions. */
+	private static final int SNAPSHOT_VERSION = 1;
+	
+	private static BuildCache buildCache = null;
+	private static OutputLimit outputLimit = null;
+	private static int liveRunDelay = 750;
+	private static DependencyStore dependencyStore = new DependencyStore(new File(System.getProperty("user.home"), ".scratchpad/dependencies"));
+	private static DependencyResolver dependencyResolver = DependencyResolver.createDefault();
+	private static File snapshotFile = new File(System.getProperty("user.home"), ".scratchpad/languages.snapshot");
+	
+	/** The configured languages by lower case name, in the order they are configured. */
+	private static Map<String, LanguageEntry> languagesByName = new LinkedHashMap<>();
+	
+	/** The first configured language for each extension. */
+	private static Map<String, LanguageEntry> languagesByExtension = new HashMap<>();
+	
+	static {
+		new Languages().readLanguages();
+	}
+	
+	/**
+	 * A configured language, which is created from its configuration when it is first used.
+	 */
+	private static class LanguageEntry {
+		private final String name;
+		private final ConfigNode config;
+		private Language language = null;
+		private boolean failed = false;
+		
+		public LanguageEntry(String name, ConfigNode config) {
+			this.name = name;
+			this.config = config;
+		}
+		
+		/**
+		 * Returns the language, or null if its configuration is invalid.
+		 */
+		public synchronized Language getLanguage() {
+			if(language == null && !failed) {
+				try {
+					language = new Languages().parseLanguage(config);
+				} catch(Exception e) {
+					System.err.println("Error parsing language " + name + ": " + e);
+					failed = true;
+				}
+			}
+			return language;
+		}
+	}
 
 	/**
 	 * Returns a list of all configured languages.
 	 */
 	public static List<Language> getLanguages() {
+		List<Language> languages = new ArrayList<>();
+		for(LanguageEntry entry:languagesByName.values()) {
+			Language language = entry.getLanguage();
+			if(language != null) {
+				languages.add(language);
+			}
+		}
 		return languages;
 	}
+	
+	/**
+	 * Returns the names of all configured languages, without creating the languages.
+	 */
+	public static List<String> getLanguageNames() {
+		List<String> names = new ArrayList<>();
+		for(LanguageEntry entry:languagesByName.values()) {
+			names.add(entry.name);
+		}
+		return names;
+	}
+	
+	/**
+	 * Returns the language with a name, ignoring case, or null if there is none.
+	 */
+	public static Language getLanguage(String name) {
+		LanguageEntry entry = (name == null) ? null : languagesByName.get(name.toLowerCase(Locale.ROOT));
+		return (entry == null) ? null : entry.getLanguage();
+	}
+	
+	/**
+	 * Returns the first configured language for a file extension, or null if there is none.
+	 */
+	public static Language getLanguageForExtension(String extension) {
+		LanguageEntry entry = (extension == null) ? null : languagesByExtension.get(extension);
+		return (entry == null) ? null : entry.getLanguage();
+	}
 
 	/**
-	 * Returns the parsed languages from a configuration file.
+	 * Returns the cache of compiler outputs, or null if build caching is disabled.
 	 */
-	private List<Language> readLanguages() {
-		List<Language> languages = new ArrayList<>();
-		
+	public static BuildCache getBuildCache() {
+		return buildCache;
+	}
+
+	/**
+	 * Returns the limit on the output kept from each stream of a run, or null if output isn't limited.
+	 */
+	public static OutputLimit getOutputLimit() {
+		return outputLimit;
+	}
+
+	/**
+	 * Returns the time in milliseconds to wait after the last edit before running in live mode.
+	 */
+	public static int getLiveRunDelay() {
+		return liveRunDelay;
+	}
+	
+	/**
+	 * Returns the store of downloaded dependencies.
+	 */
+	public static DependencyStore getDependencyStore() {
+		return dependencyStore;
+	}
+
+	/**
+	 * Returns the resolver for dependencies in the local Maven repository and Ivy cache.
+	 */
+	public static DependencyResolver getDependencyResolver() {
+		return dependencyResolver;
+	}
+
+	/**
+	 * Reads the configuration, and the name and extension of each language.
+	 */
+	private void readLanguages() {
 		try {
-			Document document;
+			ConfigNode root = readConfig();
 			
-			// Read config from either ~/.languages.xml or classpath:/compiler/languages.xml
-			File userConfig = new File(System.getProperty("user.home"), ".languages.xml");
-			if(userConfig.exists()) {
-				try(InputStream inputStream = new FileInputStream(userConfig)) {
-					document = getXmlDocument(inputStream);
-				}
-			} else {
-				try(InputStream inputStream = getClass().getResourceAsStream("/compiler/languages.xml")) {
-					document = getXmlDocument(inputStream);
-				}
-			}
+			buildCache = parseBuildCache(root);
+			outputLimit = parseOutputLimit(root.getChild("outputLimit"));
+			liveRunDelay = Integer.parseInt(getAttribute(root, "liveRunDelay", "750"));
 			
-			for(Element language:document.getRootElement().getChildren("language")) {
-				Language parsed = parseLanguage(language);
-				if(!StringUtils.isBlank(parsed.getName())) {
-					languages.add(parsed);
-				}
+			for(ConfigNode language:root.getChildren("language")) {
+				String name = getAttribute(language, "name");
+				if(StringUtils.isBlank(name)) continue;
+				
+				LanguageEntry entry = new LanguageEntry(name, language);
+				languagesByName.putIfAbsent(name.toLowerCase(Locale.ROOT), entry);
+				languagesByExtension.putIfAbsent(getAttribute(language, "extension", ""), entry);
 			}
 		} catch(Exception e) {
 			System.err.println("Error parsing languages: " + e);
 		}
+	}
+	
+	/**
+	 * Returns the parsed configuration from either ~/.languages.xml or classpath:/compiler/languages.xml,
+	 * reading it from the snapshot if the configuration hasn't changed since the snapshot was written.
+	 */
+	private ConfigNode readConfig() throws IOException, JDOMException {
+		byte[] contents;
+		String key;
 		
-		return languages;
+		File userConfig = new File(System.getProperty("user.home"), ".languages.xml");
+		if(userConfig.exists()) {
+			contents = Files.readAllBytes(userConfig.toPath());
+			key = userConfig.getAbsolutePath() + ":" + userConfig.lastModified();
+		} else {
+			try(InputStream inputStream = getClass().getResourceAsStream("/compiler/languages.xml")) {
+				contents = IOUtils.toByteArray(inputStream);
+			}
+			key = "classpath:/compiler/languages.xml";
+		}
+		key += ":" + Hashing.sha256().hashBytes(contents).toString();
+		
+		ConfigNode root = readSnapshot(key);
+		if(root == null) {
+			root = ConfigNode.fromElement(new SAXBuilder().build(new ByteArrayInputStream(contents)).getRootElement());
+			writeSnapshot(key, root);
+		}
+		return root;
+	}
+	
+	/**
+	 * Returns the configuration from the snapshot, or null if there is no snapshot for the key.
+	 */
+	private static ConfigNode readSnapshot(String key) {
+		if(!snapshotFile.isFile()) return null;
+		
+		try(DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)))) {
+			if(input.readInt() != SNAPSHOT_VERSION || !input.readUTF().equals(key)) {
+				return null;
+			}
+			return ConfigNode.read(input);
+		} catch(IOException e) {
+			// The snapshot is unreadable, so parse the configuration again.
+			return null;
+		}
+	}
+	
+	/**
+	 * Writes the configuration to the snapshot, replacing it atomically so that other instances never read
+	 * a partial snapshot. Failing to write it only means the configuration is parsed again next time.
+	 */
+	private static void writeSnapshot(String key, ConfigNode root) {
+		try {
+			snapshotFile.getParentFile().mkdirs();
+			
+			File tempFile = File.createTempFile("languages", ".tmp", snapshotFile.getParentFile());
+			try {
+				try(DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+					output.writeInt(SNAPSHOT_VERSION);
+					output.writeUTF(key);
+					root.write(output);
+				}
+				Files.move(tempFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				tempFile.delete();
+			}
+		} catch(IOException e) {
+			System.err.println("Error writing languages snapshot: " + e);
+		}
+	}
+	
+	/**
+	 * Returns the build cache configured by the buildCacheSize attribute of the root element in megabytes,
+	 * or null if the size is 0.
+	 */
+	private BuildCache parseBuildCache(ConfigNode rootElement) {
+		long size = Long.parseLong(getAttribute(rootElement, "buildCacheSize", "512")) * 1024 * 1024;
+		if(size <= 0) return null;
+		
+		File cacheDir = new File(System.getProperty("user.home"), ".scratchpad/build-cache");
+		return new BuildCache(cacheDir, size);
+	}
+	
+	/**
+	 * Returns the output limit for an outputLimit element, or the default limit if there is no element.
+	 * Returns null if the maxChars attribute is 0.
+	 */
+	private OutputLimit parseOutputLimit(ConfigNode outputLimitElement) {
+		ConfigNode element = (outputLimitElement == null) ? new ConfigNode("outputLimit", "", new HashMap<>(), new ArrayList<>()) : outputLimitElement;
+		
+		long maxChars = Long.parseLong(getAttribute(element, "maxChars", "4000000"));
+		long maxLines = Long.parseLong(getAttribute(element, "maxLines", "100000"));
+		OutputLimit.Policy policy = OutputLimit.parsePolicy(getAttribute(element, "policy", "headTail"));
+		boolean kill = Boolean.parseBoolean(getAttribute(element, "kill", "false"));
+		
+		if(maxChars <= 0) return null;
+		
+		return new OutputLimit(maxChars, maxLines, policy, kill);
 	}
 	
 	/**
 	 * Returns a language by parsing an xml language element.
 	 */
-	private Language parseLanguage(Element languageElement) {
+	private Language parseLanguage(ConfigNode languageElement) {
 		String name = getAttribute(languageElement, "name");
 		String extension = getAttribute(languageElement, "extension");
 		String brush = getAttribute(languageElement, "brush");
@@ -74,6 +291,13 @@ public class Languages {
 		String initCommand = getChild(languageElement, "initCommand");
 		String depCommand = getChild(languageElement, "depCommand");
 		String defaultClasspath = getChild(languageElement, "defaultClasspath");
+		String compileMode = getChild(languageElement, "compileMode");
+		Runner runner = parseRunner(languageElement.getChild("runMode"), run);
+		ProcessPool pool = parsePool(languageElement.getChild("pool"));
+		Workspace workspace = parseWorkspace(languageElement.getChild("workspace"), name, extension);
+		ResourceLimits limits = parseLimits(languageElement.getChild("limits"));
+		CommentSyntax comments = parseComments(languageElement.getChild("comments"));
+		JmhHarness jmh = parseJmh(languageElement.getChild("jmh"));
 		
 		// Add defaults for non-optional parameters.
 		if(extension == null) extension = "";
@@ -81,13 +305,10 @@ public class Languages {
 		if(template == null) template = "";
 		if(defaultClasspath == null) defaultClasspath = ".";
 		
-		// Load the brush by class name.
-		Brush brushObject = getBrush(brush);
-		
 		return new Language(
 			name,
 			extension,
-			brushObject,
+			brush,
 			compilers,
 			run,
 			filenameMatcher,
@@ -96,14 +317,118 @@ public class Languages {
 			standardImportJar,
 			initCommand,
 			depCommand,
-			defaultClasspath
+			defaultClasspath,
+			compileMode,
+			runner,
+			pool,
+			workspace,
+			limits,
+			comments,
+			jmh
 		);
 	}
+	
+	/**
+	 * Returns the runner for a runMode element, or null if programs aren't run on a warm runner.
+	 * The runner uses the java executable from the start of the run commandline.
+	 */
+	private Runner parseRunner(ConfigNode runModeElement, String run) {
+		if(runModeElement == null || !runModeElement.getText().equals("runner")) return null;
+		
+		String javaCommand = (run == null) ? "java" : run.split(" ")[0];
+		int maxRuns = Integer.parseInt(getAttribute(runModeElement, "maxRuns", "100"));
+		long leakThreshold = Long.parseLong(getAttribute(runModeElement, "leakThreshold", "256")) * 1024 * 1024;
+		
+		return new Runner(javaCommand, maxRuns, leakThreshold);
+	}
+
+	/**
+	 * Returns the process pool for a pool element, or null if processes aren't started ahead of time.
+	 */
+	private ProcessPool parsePool(ConfigNode poolElement) {
+		if(poolElement == null) return null;
+		
+		int size = Integer.parseInt(getAttribute(poolElement, "size", "1"));
+		long idleTimeout = Long.parseLong(getAttribute(poolElement, "idleTimeout", "300")) * 1000;
+		String program = getAttribute(poolElement, "program", "$NAME.$EXT");
+		
+		if(size <= 0) return null;
+		
+		return new ProcessPool(poolElement.getText(), program, size, idleTimeout);
+	}
+
+	/**
+	 * Returns the workspace for a workspace element, or null if each run uses a new temporary directory.
+	 * The dir attribute sets where the directories are created, such as on a tmpfs mount, maxSize sets
+	 * the size in megabytes above which a directory is emptied, and outputs lists the wildcard patterns
+	 * of the files each run creates that are removed before the next.
+	 */
+	private Workspace parseWorkspace(ConfigNode workspaceElement, String name, String extension) {
+		if(workspaceElement == null || !workspaceElement.getText().equals("reuse")) return null;
+		
+		File baseDir = new File(getAttribute(workspaceElement, "dir", System.getProperty("java.io.tmpdir")));
+		long maxSize = Long.parseLong(getAttribute(workspaceElement, "maxSize", "256")) * 1024 * 1024;
+		List<String> outputs = Arrays.asList(StringUtils.split(getAttribute(workspaceElement, "outputs", "")));
+		
+		return new Workspace(baseDir, name, (extension == null) ? "" : extension, maxSize, outputs);
+	}
+
+	/**
+	 * Returns the resource limits for a limits element, or no limits if there is no element. The wallTime and
+	 * cpuTime attributes are in seconds, memory is in megabytes, and openFiles is a count.
+	 */
+	private ResourceLimits parseLimits(ConfigNode limitsElement) {
+		if(limitsElement == null) return ResourceLimits.NONE;
+		
+		long wallTime = Long.parseLong(getAttribute(limitsElement, "wallTime", "0"));
+		long cpuTime = Long.parseLong(getAttribute(limitsElement, "cpuTime", "0"));
+		long memory = Long.parseLong(getAttribute(limitsElement, "memory", "0"));
+		long openFiles = Long.parseLong(getAttribute(limitsElement, "openFiles", "0"));
+		
+		return new ResourceLimits(wallTime, cpuTime, memory, openFiles);
+	}
+
+	/**
+	 * Returns the comment syntax for a comments element, or no comments if there is no element. The line
+	 * attribute starts a comment to the end of the line, and block is the start and end of a block
+	 * comment separated by a space.
+	 */
+	private CommentSyntax parseComments(ConfigNode commentsElement) {
+		if(commentsElement == null) return CommentSyntax.NONE;
+		
+		String line = getAttribute(commentsElement, "line");
+		String block = getAttribute(commentsElement, "block");
+		String[] blockDelimiters = (block == null) ? new String[0] : block.trim().split("\\s+");
+		
+		if(blockDelimiters.length == 2) {
+			return new CommentSyntax(line, blockDelimiters[0], blockDelimiters[1]);
+		} else {
+			return new CommentSyntax(line, null, null);
+		}
+	}
+
+	/**
+	 * Returns the JMH harness for a jmh element, or null if programs are run directly. The forks,
+	 * warmupIterations and iterations attributes are counts, warmupTime and time are the length of each
+	 * iteration in seconds, and profilers is a space separated list of JMH profilers such as "gc".
+	 */
+	private JmhHarness parseJmh(ConfigNode jmhElement) {
+		if(jmhElement == null) return null;
+		
+		int forks = Integer.parseInt(getAttribute(jmhElement, "forks", "-1"));
+		int warmupIterations = Integer.parseInt(getAttribute(jmhElement, "warmupIterations", "-1"));
+		int iterations = Integer.parseInt(getAttribute(jmhElement, "iterations", "-1"));
+		int warmupTime = Integer.parseInt(getAttribute(jmhElement, "warmupTime", "-1"));
+		int time = Integer.parseInt(getAttribute(jmhElement, "time", "-1"));
+		String profilers = getAttribute(jmhElement, "profilers", "").trim();
+		
+		return new JmhHarness(forks, warmupIterations, iterations, warmupTime, time, profilers.isEmpty() ? new ArrayList<>() : Arrays.asList(profilers.split("\\s+")));
+	}
 
 	/**
 	 * Returns an instance of a brush by its name, or BrushPlain if it can't be loaded.
 	 */
-	private Brush getBrush(String brush) {
+	static Brush getBrush(String brush) {
 		String[] packages = { "syntaxhighlighter.brush", "compiler.brushes" };
 		
 		for(String p:packages) {
@@ -125,19 +450,19 @@ public class Languages {
 	 * Returns the trimmed text of the named child of the specified element,
 	 * or null is the child doesn't exist.
 	 */
-	private String getChild(Element element, String name) {
-		Element child = element.getChild(name);
+	private String getChild(ConfigNode element, String name) {
+		ConfigNode child = element.getChild(name);
 		if(child == null) return null;
-		return child.getTextTrim();
+		return child.getText();
 	}
 	
 	/**
 	 * Returns the trimmed text of all the named children of the specified element.
 	 */
-	private List<String> getChildren(Element element, String name) {
+	private List<String> getChildren(ConfigNode element, String name) {
 		List<String> children = new ArrayList<>();
-		for(Element child:element.getChildren(name)) {
-			children.add(child.getTextTrim());
+		for(ConfigNode child:element.getChildren(name)) {
+			children.add(child.getText());
 		}
 		return children;
 	}
@@ -146,19 +471,16 @@ public class Languages {
 	 * Returns the attribute value of the named attribute of the specified element,
 	 * or null if the attribute doesn't exist.
 	 */
-	private String getAttribute(Element element, String name) {
-		return element.getAttributeValue(name);
+	private String getAttribute(ConfigNode element, String name) {
+		return element.getAttribute(name);
 	}
 
 	/**
-	 * Returns the xml document created by reading an InputStream.
+	 * Returns the attribute value of the named attribute of the specified element,
+	 * or defaultValue if the attribute doesn't exist.
 	 */
-	private Document getXmlDocument(InputStream inputStream) throws IOException, JDOMException {
-		try {
-			String text = IOUtils.toString(inputStream);
-			return new SAXBuilder().build(new StringReader(text));
-		} finally {
-			IOUtils.closeQuietly(inputStream);
-		}
+	private String getAttribute(ConfigNode element, String name, String defaultValue) {
+		String value = element.getAttribute(name);
+		return (value == null) ? defaultValue : value;
 	}
 }
@@ -0,0 +1,81 @@
+package compiler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The standard input of a program, which can be written to while the program is running. Input
+ * written before the program has started is sent to it when it starts.
+ */
+public class LiveInput {
+	private final StringBuilder pending = new StringBuilder();
+	private OutputStream stream = null;
+	private boolean closed = false;
+
+	/**
+	 * Returns input that sends text to the program and then closes.
+	 */
+	public static LiveInput of(String text) {
+		LiveInput input = new LiveInput();
+		input.write(text);
+		input.close();
+		return input;
+	}
+
+	/**
+	 * Sends text to the program. Does nothing if the input is closed or the program has stopped reading it.
+	 */
+	public synchronized void write(String text) {
+		if(closed) return;
+
+		if(stream == null) {
+			pending.append(text);
+		} else {
+			try {
+				stream.write(text.getBytes(StandardCharsets.UTF_8));
+				stream.flush();
+			} catch(IOException e) {
+				// The program has exited or closed its input.
+			}
+		}
+	}
+
+	/**
+	 * Closes the input so that the program reads the end of the stream.
+	 */
+	public synchronized void close() {
+		if(closed) return;
+		closed = true;
+
+		if(stream != null) {
+			try {
+				stream.close();
+			} catch(IOException e) {
+			}
+		}
+	}
+
+	public synchronized boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Sends any pending input to a program's input stream, and closes it if this input is closed.
+	 * Throws an IOException if the program exits without reading the pending input.
+	 */
+	synchronized void attach(OutputStream stream) throws IOException {
+		this.stream = stream;
+
+		try {
+			stream.write(pending.toString().getBytes(StandardCharsets.UTF_8));
+			stream.flush();
+		} finally {
+			pending.setLength(0);
+
+			if(closed) {
+				stream.close();
+			}
+		}
+	}
+}
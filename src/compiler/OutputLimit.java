@@ -0,0 +1,65 @@
+package compiler;
+
+/**
+ * The maximum output kept from a single stream of a run, and what to keep once it is exceeded.
+ */
+public class OutputLimit {
+	/**
+	 * Which part of the output to keep.
+	 */
+	public enum Policy {
+		/** Show output as it arrives, and drop everything after the limit. */
+		HEAD,
+		/** Keep only the end of the output, and show it when the run finishes. */
+		TAIL,
+		/** Show the first half of the limit as it arrives, and the end of the output when the run finishes. */
+		HEAD_TAIL
+	}
+
+	private final long maxChars;
+	private final long maxLines;
+	private final Policy policy;
+	private final boolean kill;
+
+	/**
+	 * Creates an output limit.
+	 * @param maxChars the maximum number of characters to keep.
+	 * @param maxLines the maximum number of lines to keep.
+	 * @param policy which part of the output to keep.
+	 * @param kill whether to kill the process once the limit is exceeded.
+	 */
+	public OutputLimit(long maxChars, long maxLines, Policy policy, boolean kill) {
+		this.maxChars = maxChars;
+		this.maxLines = maxLines;
+		this.policy = policy;
+		this.kill = kill;
+	}
+
+	/**
+	 * Returns the policy for its name in the configuration: 'head', 'tail' or 'headTail'.
+	 */
+	public static Policy parsePolicy(String name) {
+		switch(name) {
+			case "head": return Policy.HEAD;
+			case "tail": return Policy.TAIL;
+			case "headTail": return Policy.HEAD_TAIL;
+			default: throw new IllegalArgumentException("Unknown output policy: " + name);
+		}
+	}
+
+	public long getMaxChars() {
+		return maxChars;
+	}
+
+	public long getMaxLines() {
+		return maxLines;
+	}
+
+	public Policy getPolicy() {
+		return policy;
+	}
+
+	public boolean isKill() {
+		return kill;
+	}
+}
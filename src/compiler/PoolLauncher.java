@@ -0,0 +1,62 @@
+package compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The main class of a pre-started Java process. Waits for the name of the class to run on the
+ * first line of standard input, then runs its main method with the rest of standard input.
+ * <p>
+ * The program is loaded from the classpath in the scratchpad.classpath property by its own class
+ * loader, rather than from the classpath of this process. The classpath is resolved when the program
+ * is run, so jars linked into the directory after this process started are found, and the classes
+ * of scratchpad itself aren't visible to the program.
+ */
+public class PoolLauncher {
+	public static void main(String[] args) throws Throwable {
+		String mainClass = readLine();
+
+		String classpath = System.getProperty("scratchpad.classpath", ".");
+		ClassLoader loader = new URLClassLoader(getClasspathUrls(classpath), ClassLoader.getSystemClassLoader().getParent());
+		System.setProperty("java.class.path", classpath);
+		Thread.currentThread().setContextClassLoader(loader);
+
+		try {
+			Class.forName(mainClass, true, loader).getMethod("main", String[].class).invoke(null, (Object) args);
+		} catch(InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Returns the URLs of the files in a classpath, resolving relative entries against the working directory.
+	 */
+	private static URL[] getClasspathUrls(String classpath) throws IOException {
+		List<URL> urls = new ArrayList<>();
+		for(File file:Classpath.resolve(new File("."), classpath)) {
+			urls.add(file.toURI().toURL());
+		}
+		return urls.toArray(new URL[0]);
+	}
+
+	/**
+	 * Reads a line from standard input without buffering past its end.
+	 */
+	private static String readLine() throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+		int c;
+		while((c = System.in.read()) != -1 && c != '\n') {
+			line.write(c);
+		}
+
+		return new String(line.toByteArray(), StandardCharsets.UTF_8).trim();
+	}
+}
@@ -0,0 +1,198 @@
+package compiler;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Keeps interpreters or JVMs started ahead of time, each waiting in its own directory for the
+ * name of a program on the first line of its standard input. A run takes a waiting process and
+ * uses its directory, hiding the time taken to start the process.
+ */
+public class ProcessPool {
+	private static ScheduledExecutorService executor = Executors.newScheduledThreadPool(1, new ThreadFactoryBuilder().setDaemon(true).build());
+
+	private final String command;
+	private final String program;
+	private final int size;
+	private final long idleTimeout;
+
+	private final List<PooledProcess> ready = new ArrayList<>();
+	private String readyKey = null;
+	private int starting = 0;
+
+	/**
+	 * Starts a process in a directory.
+	 */
+	public interface Launcher {
+		Process launch(File dir) throws Exception;
+	}
+
+	/**
+	 * A started process waiting for a program to run.
+	 */
+	public static class PooledProcess {
+		private final File dir;
+		private final Process process;
+		private boolean used = false;
+
+		public PooledProcess(File dir, Process process) {
+			this.dir = dir;
+			this.process = process;
+		}
+
+		/**
+		 * Returns the directory the process was started in.
+		 */
+		public File getDir() {
+			return dir;
+		}
+
+		/**
+		 * Returns a callable that sends the program name to the process and returns it.
+		 */
+		public Callable<Process> start(String program) {
+			return () -> {
+				used = true;
+				OutputStream outputStream = process.getOutputStream();
+				outputStream.write((program + "\n").getBytes(StandardCharsets.UTF_8));
+				outputStream.flush();
+				return process;
+			};
+		}
+
+		/**
+		 * Destroys the process if it was never used to run a program.
+		 */
+		public void discard() {
+			if(!used) {
+				process.destroy();
+			}
+		}
+
+		private void destroy() {
+			process.destroy();
+			Workspace.delete(dir);
+		}
+	}
+
+	/**
+	 * Creates a process pool.
+	 * @param command the commandline of the processes to start. It should read the program name from the first line of standard input.
+	 * @param program the program name to send to the process, such as '$NAME.$EXT'.
+	 * @param size the number of processes to keep started.
+	 * @param idleTimeout the time in milliseconds after which an unused process is destroyed.
+	 */
+	public ProcessPool(String command, String program, int size, long idleTimeout) {
+		this.command = command;
+		this.program = program;
+		this.size = size;
+		this.idleTimeout = idleTimeout;
+	}
+
+	/**
+	 * Returns a started process, or null if none is ready, and starts processes to replace it.
+	 * @param key identifies processes that can be used interchangeably, such as their expanded commandline.
+	 * @param launcher starts a new process.
+	 */
+	public synchronized PooledProcess take(String key, Launcher launcher) {
+		PooledProcess taken = null;
+
+		if(key.equals(readyKey)) {
+			while(!ready.isEmpty() && taken == null) {
+				PooledProcess pooled = ready.remove(0);
+				if(pooled.process.isAlive()) {
+					taken = pooled;
+				} else {
+					pooled.destroy();
+				}
+			}
+		}
+
+		fill(key, launcher);
+
+		return taken;
+	}
+
+	/**
+	 * Starts processes in the background until the pool is full.
+	 */
+	public synchronized void fill(String key, Launcher launcher) {
+		if(!key.equals(readyKey)) {
+			// Processes started with a different commandline can't be used anymore.
+			for(PooledProcess pooled:ready) {
+				pooled.destroy();
+			}
+			ready.clear();
+			readyKey = key;
+		}
+
+		while(ready.size() + starting < size) {
+			starting++;
+			executor.execute(() -> launch(key, launcher));
+		}
+	}
+
+	/**
+	 * Starts a process and adds it to the pool, then schedules it to be destroyed if it isn't used
+	 * before the idle timeout.
+	 */
+	private void launch(String key, Launcher launcher) {
+		PooledProcess pooled = null;
+
+		try {
+			File dir = Files.createTempDirectory("scratchpad").toFile();
+			pooled = new PooledProcess(dir, launcher.launch(dir));
+		} catch(Exception e) {
+			System.err.println("Error starting pooled process: " + e.getMessage());
+		}
+
+		synchronized(this) {
+			starting--;
+
+			if(pooled == null) return;
+
+			if(!key.equals(readyKey)) {
+				pooled.destroy();
+				return;
+			}
+
+			ready.add(pooled);
+		}
+
+		final PooledProcess added = pooled;
+		executor.schedule(() -> expire(added), idleTimeout, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Destroys a process if it is still unused.
+	 */
+	private synchronized void expire(PooledProcess pooled) {
+		if(ready.remove(pooled)) {
+			pooled.destroy();
+		}
+	}
+
+	/**
+	 * Returns the commandline of the processes to start.
+	 */
+	public String getCommand() {
+		return command;
+	}
+
+	/**
+	 * Returns the program name to send to a started process.
+	 */
+	public String getProgram() {
+		return program;
+	}
+}
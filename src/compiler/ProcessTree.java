@@ -0,0 +1,155 @@
+package compiler;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A process and its descendants, such as the programs started by a shell script or launcher.
+ * Descendants are remembered when they are first seen, so they can still be killed after the
+ * process they were started from has exited. They are looked for each time the running processes
+ * are collected, such as when a run samples its resource use, and when the tree is stopped. A
+ * descendant that starts and is orphaned between those times isn't found.
+ */
+public class ProcessTree {
+	private final Process process;
+	private final Set<ProcessHandle> handles = new LinkedHashSet<>();
+	private final Set<ProcessHandle> signalled = new LinkedHashSet<>();
+
+	public ProcessTree(Process process) {
+		this.process = process;
+	}
+
+	public Process getProcess() {
+		return process;
+	}
+
+	/**
+	 * Asks the process and its descendants to exit, without waiting for them.
+	 */
+	public synchronized void terminate() {
+		if(!collect()) {
+			// Not an operating system process, such as a program run in a warm runner JVM.
+			process.destroy();
+			return;
+		}
+
+		for(ProcessHandle handle:handles) {
+			if(handle.isAlive() && signalled.add(handle)) {
+				handle.destroy();
+			}
+		}
+	}
+
+	/**
+	 * Kills the process and its descendants straight away, without waiting for them or closing
+	 * the streams of the process, so that its output can still be read to the end.
+	 */
+	public synchronized void kill() {
+		if(!collect()) {
+			process.destroyForcibly();
+			return;
+		}
+
+		for(ProcessHandle handle:handles) {
+			if(handle.isAlive()) {
+				handle.destroyForcibly();
+			}
+		}
+	}
+
+	/**
+	 * Asks the process and its descendants to exit, then kills any still running after the timeout,
+	 * and waits up to the timeout again for them to exit.
+	 */
+	public void destroy(long timeoutMillis) throws InterruptedException {
+		terminate();
+
+		List<ProcessHandle> handles;
+		synchronized(this) {
+			handles = new ArrayList<>(this.handles);
+		}
+
+		if(!waitForExit(handles, timeoutMillis)) {
+			for(ProcessHandle handle:handles) {
+				if(handle.isAlive()) {
+					handle.destroyForcibly();
+				}
+			}
+			waitForExit(handles, timeoutMillis);
+		}
+
+		// Let the Process know it has exited so that its streams are closed.
+		process.destroy();
+	}
+
+	/**
+	 * Returns the number of processes that were still running when they were first asked to exit.
+	 */
+	public synchronized int getStoppedCount() {
+		return signalled.size();
+	}
+
+	/**
+	 * Returns the processes of the tree that are still running, remembering any new descendants, or
+	 * null if the process isn't an operating system process.
+	 */
+	public synchronized List<ProcessHandle> getRunning() {
+		if(!collect()) return null;
+
+		List<ProcessHandle> running = new ArrayList<>();
+		for(ProcessHandle handle:handles) {
+			if(handle.isAlive()) {
+				running.add(handle);
+			}
+		}
+		return running;
+	}
+
+	/**
+	 * Adds the process and the current descendants of it and of the remembered processes still running
+	 * to the remembered handles. Descendants of a process that has exited have been moved to another
+	 * parent, so are found from the remembered processes. Returns false if the process doesn't have a handle.
+	 */
+	private boolean collect() {
+		ProcessHandle root;
+		try {
+			root = process.toHandle();
+		} catch(UnsupportedOperationException e) {
+			return false;
+		}
+
+		handles.add(root);
+
+		// Only the top of each remembered subtree needs to be searched, as the rest are its descendants.
+		for(ProcessHandle handle:new ArrayList<>(handles)) {
+			if(handle.isAlive() && (handle.equals(root) || !handle.parent().map(handles::contains).orElse(false))) {
+				handle.descendants().forEach(handles::add);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Waits for processes to exit, returning whether they all exited within the timeout.
+	 */
+	private static boolean waitForExit(List<ProcessHandle> handles, long timeoutMillis) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+		for(ProcessHandle handle:handles) {
+			long remaining = deadline - System.nanoTime();
+			try {
+				handle.onExit().get(Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+			} catch(TimeoutException e) {
+				return false;
+			} catch(ExecutionException e) {
+			}
+		}
+
+		return true;
+	}
+}
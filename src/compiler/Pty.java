@@ -0,0 +1,78 @@
+package compiler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Runs programs attached to a pseudo-terminal on Linux using the script command, so that they
+ * line buffer their output as they would in a terminal instead of fully buffering it. The terminal
+ * doesn't echo input or translate newlines, and stdout and stderr are merged into one stream.
+ */
+public class Pty {
+	private static String script = ResourceLimits.findLinuxExecutable("script");
+	private static boolean echoOption = hasEchoOption();
+
+	/**
+	 * Returns whether programs can be run in a pseudo-terminal on this system.
+	 */
+	public static boolean isSupported() {
+		return script != null;
+	}
+
+	/**
+	 * Returns a commandline that runs command in a pseudo-terminal, returning its exit value.
+	 */
+	public static List<String> wrap(List<String> command) {
+		StringBuilder shellCommand = new StringBuilder("stty -echo -onlcr 2>/dev/null; exec");
+		for(String arg:command) {
+			shellCommand.append(' ').append(quote(arg));
+		}
+
+		List<String> wrapped = new ArrayList<>();
+		wrapped.add(script);
+	
+		// Turn off echo from the start, since input can arrive before stty runs.
+		if(echoOption) {
+			wrapped.add("--echo");
+			wrapped.add("never");
+		}
+	
+		wrapped.add("-qfec");
+		wrapped.add(shellCommand.toString());
+		wrapped.add("/dev/null");
+		return wrapped;
+	}
+	
+	/**
+	 * Returns whether script supports the --echo option, which was added in util-linux 2.35.
+	 */
+	private static boolean hasEchoOption() {
+		if(script == null) return false;
+	
+		try {
+			Process process = new ProcessBuilder(script, "--help").redirectErrorStream(true).start();
+			try(InputStream inputStream = process.getInputStream()) {
+				return IOUtils.toString(inputStream, StandardCharsets.UTF_8).contains("--echo");
+			} finally {
+				process.waitFor();
+			}
+		} catch(IOException e) {
+			return false;
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/**
+	 * Returns an argument quoted for the shell.
+	 */
+	static String quote(String arg) {
+		return "'" + arg.replace("'", "'\\''") + "'";
+	}
+}
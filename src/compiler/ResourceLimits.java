@@ -0,0 +1,177 @@
+package compiler;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Limits on the resources used by a run. The wall time is enforced by killing the process, and
+ * the other limits are applied on Linux by starting the program with prlimit.
+ */
+public class ResourceLimits {
+	public static final ResourceLimits NONE = new ResourceLimits(0, 0, 0, 0);
+
+	/** The exit value of a process killed by SIGXCPU after exceeding its CPU time limit. */
+	private static final int SIGXCPU_EXIT_VALUE = 128 + 24;
+
+	/** The exit value of a process killed by SIGKILL, such as at the hard CPU time limit. */
+	private static final int SIGKILL_EXIT_VALUE = 128 + 9;
+
+	/** Errors reported by programs that failed to allocate memory, in C, C++, Java and Python. */
+	private static final Pattern MEMORY_ERROR_PATTERN = Pattern.compile("Cannot allocate memory|out of memory|bad_alloc|OutOfMemoryError|MemoryError|Could not reserve enough space", Pattern.CASE_INSENSITIVE);
+
+	/** The error reported by programs that failed to open a file because too many are open. */
+	private static final Pattern OPEN_FILES_ERROR_PATTERN = Pattern.compile("Too many open files");
+
+	private static final Pattern DIRECTIVE_PATTERN = Pattern.compile("(?://|#|--) LIMIT: (.*)");
+	private static final Pattern SETTING_PATTERN = Pattern.compile("(\\w+)=(\\d+)");
+
+	private static String prlimit = findLinuxExecutable("prlimit");
+
+	private final long wallTime;
+	private final long cpuTime;
+	private final long memory;
+	private final long openFiles;
+
+	/**
+	 * Creates resource limits. A limit of 0 means unlimited.
+	 * @param wallTime the maximum elapsed time in seconds.
+	 * @param cpuTime the maximum CPU time in seconds.
+	 * @param memory the maximum address space in megabytes.
+	 * @param openFiles the maximum number of open files.
+	 */
+	public ResourceLimits(long wallTime, long cpuTime, long memory, long openFiles) {
+		this.wallTime = wallTime;
+		this.cpuTime = cpuTime;
+		this.memory = memory;
+		this.openFiles = openFiles;
+	}
+
+	/**
+	 * Returns whether the source sets its own limits with a directive such as "// LIMIT: wall=10 cpu=5 memory=512 files=64".
+	 */
+	public static boolean hasDirective(String contents) {
+		return DIRECTIVE_PATTERN.matcher(contents).find();
+	}
+
+	/**
+	 * Returns these limits overridden by any limits set by directives in the source.
+	 */
+	public ResourceLimits withDirectives(String contents) {
+		long wallTime = this.wallTime;
+		long cpuTime = this.cpuTime;
+		long memory = this.memory;
+		long openFiles = this.openFiles;
+
+		Matcher directiveMatcher = DIRECTIVE_PATTERN.matcher(contents);
+		while(directiveMatcher.find()) {
+			Matcher settingMatcher = SETTING_PATTERN.matcher(directiveMatcher.group(1));
+			while(settingMatcher.find()) {
+				long value = Long.parseLong(settingMatcher.group(2));
+				switch(settingMatcher.group(1)) {
+					case "wall": wallTime = value; break;
+					case "cpu": cpuTime = value; break;
+					case "memory": memory = value; break;
+					case "files": openFiles = value; break;
+				}
+			}
+		}
+
+		return new ResourceLimits(wallTime, cpuTime, memory, openFiles);
+	}
+
+	public long getWallTime() {
+		return wallTime;
+	}
+
+	public long getCpuTime() {
+		return cpuTime;
+	}
+
+	public long getMemory() {
+		return memory;
+	}
+
+	public long getOpenFiles() {
+		return openFiles;
+	}
+
+	/**
+	 * Returns whether there are limits that need to be applied when the process is started.
+	 */
+	public boolean hasProcessLimits() {
+		return cpuTime > 0 || memory > 0 || openFiles > 0;
+	}
+
+	/**
+	 * Returns whether the process limits can be applied on this system.
+	 */
+	public static boolean isSupported() {
+		return prlimit != null;
+	}
+
+	/**
+	 * Returns a commandline that runs command with the process limits applied, or command unchanged
+	 * if there are no process limits or they can't be applied on this system.
+	 */
+	public List<String> wrap(List<String> command) {
+		if(!hasProcessLimits() || !isSupported()) return command;
+
+		List<String> wrapped = new ArrayList<>();
+		wrapped.add(prlimit);
+
+		// Send SIGXCPU at the limit, and SIGKILL a second later if it is ignored.
+		if(cpuTime > 0) wrapped.add("--cpu=" + cpuTime + ":" + (cpuTime + 1));
+		if(memory > 0) wrapped.add("--as=" + memory * 1024 * 1024);
+		if(openFiles > 0) wrapped.add("--nofile=" + openFiles);
+
+		wrapped.add("--");
+		wrapped.addAll(command);
+		return wrapped;
+	}
+
+	/**
+	 * Returns a description of the limit exceeded by a process that failed, or null if it doesn't
+	 * appear to have exceeded a limit. The CPU time limit kills the process, while the memory and
+	 * open files limits make allocating or opening fail, so those are recognized from the error
+	 * the program reported.
+	 * @param exitValue the exit value of the process.
+	 * @param cpuMillis the CPU time used by the process, or -1 if it isn't known.
+	 * @param errorOutput the end of the error output of the process.
+	 */
+	public String getViolation(int exitValue, long cpuMillis, String errorOutput) {
+		if(exitValue == 0) return null;
+
+		if(cpuTime > 0 && (exitValue == SIGXCPU_EXIT_VALUE || (exitValue == SIGKILL_EXIT_VALUE && cpuMillis >= cpuTime * 1000))) {
+			return "CPU time limit of " + cpuTime + "s exceeded, process killed";
+		}
+		if(memory > 0 && MEMORY_ERROR_PATTERN.matcher(errorOutput).find()) {
+			return "Memory limit of " + memory + "MB exceeded, allocation failed";
+		}
+		if(openFiles > 0 && OPEN_FILES_ERROR_PATTERN.matcher(errorOutput).find()) {
+			return "Open files limit of " + openFiles + " exceeded, open failed";
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the path to an executable on the PATH on Linux, or null if it isn't available.
+	 */
+	static String findLinuxExecutable(String name) {
+		if(!System.getProperty("os.name").equals("Linux")) return null;
+
+		String path = System.getenv("PATH");
+		if(path == null) return null;
+
+		for(String dir:path.split(File.pathSeparator)) {
+			File file = new File(dir, name);
+			if(file.isFile() && file.canExecute()) {
+				return file.getPath();
+			}
+		}
+
+		return null;
+	}
+}
@@ -0,0 +1,203 @@
+package compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Owns the subtasks and processes started for a single run. Cancelling the scope cancels every
+ * subtask and asks every process and its descendants to exit, and closing it kills anything still
+ * running, so nothing started by a run outlives it.
+ */
+public class RunScope implements AutoCloseable {
+	/** The time in milliseconds to wait for processes to exit before killing them. */
+	private static final long DESTROY_TIMEOUT = 500;
+
+	private final ExecutorService executor;
+
+	private final List<Future<?>> tasks = new ArrayList<>();
+	private final List<ProcessTree> processes = new ArrayList<>();
+	private boolean cancelled = false;
+
+	/**
+	 * Creates a scope that runs its subtasks on executor.
+	 */
+	public RunScope(ExecutorService executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Returns an executor that runs each task on a new virtual thread if the JVM supports them,
+	 * or on a cached pool of daemon threads otherwise.
+	 */
+	public static ExecutorService createExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch(ReflectiveOperationException | UnsupportedOperationException e) {
+			// Virtual threads are unavailable, or a preview feature that isn't enabled.
+			return Executors.newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true).build());
+		}
+	}
+
+	/**
+	 * Starts a subtask in this scope.
+	 */
+	public synchronized Future<?> fork(Runnable runnable) {
+		checkCancelled();
+		Future<?> future = executor.submit(runnable);
+		tasks.add(future);
+		return future;
+	}
+
+	/**
+	 * Starts a subtask in this scope that returns a result.
+	 */
+	public synchronized <T> Future<T> fork(Callable<T> callable) {
+		checkCancelled();
+		Future<T> future = executor.submit(callable);
+		tasks.add(future);
+		return future;
+	}
+	
+	/**
+	 * Starts a process in this scope. The process and its descendants are destroyed if the scope is cancelled.
+	 */
+	public Process start(Callable<Process> processBuilder) throws Exception {
+		checkCancelled();
+		Process process = processBuilder.call();
+		ProcessTree tree = new ProcessTree(process);
+
+		synchronized(this) {
+			processes.add(tree);
+			if(cancelled) {
+				tree.terminate();
+				throw new CancellationException();
+			}
+		}
+
+		return process;
+	}
+
+	/**
+	 * Returns the tree of a process started in this scope, which remembers its descendants, or null if
+	 * it wasn't started in this scope.
+	 */
+	public synchronized ProcessTree getTree(Process process) {
+		for(ProcessTree tree:processes) {
+			if(tree.getProcess() == process) {
+				return tree;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Destroys a process started in this scope along with its descendants, waiting for them to exit.
+	 */
+	public void destroy(Process process) throws InterruptedException {
+		ProcessTree tree = getTree(process);
+
+		if(tree == null) {
+			process.destroy();
+		} else {
+			tree.destroy(DESTROY_TIMEOUT);
+		}
+	}
+
+	/**
+	 * Cancels every subtask and asks every process started in this scope and their descendants to exit.
+	 * Any later attempt to start a subtask or process throws a CancellationException. The processes are
+	 * killed if they haven't exited by the time the scope is closed.
+	 */
+	public void cancel() {
+		List<ProcessTree> processes;
+		List<Future<?>> tasks;
+
+		synchronized(this) {
+			cancelled = true;
+			processes = new ArrayList<>(this.processes);
+			tasks = new ArrayList<>(this.tasks);
+		}
+
+		for(ProcessTree process:processes) {
+			process.terminate();
+		}
+
+		for(Future<?> task:tasks) {
+			task.cancel(true);
+		}
+	}
+
+	/**
+	 * Returns whether the scope has been cancelled.
+	 */
+	public synchronized boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Returns the number of processes that were still running when they were destroyed.
+	 */
+	public synchronized int getReapedCount() {
+		int reapedCount = 0;
+		for(ProcessTree process:processes) {
+			reapedCount += process.getStoppedCount();
+		}
+		return reapedCount;
+	}
+
+	/**
+	 * Destroys any processes still running along with their descendants, escalating to killing them if
+	 * they don't exit in time, and cancels any subtasks still running then waits for them to finish.
+	 */
+	public void close() {
+		// Clear any interrupt from cancelling the run, so that the processes are still waited for.
+		boolean interrupted = Thread.interrupted();
+
+		try {
+			List<ProcessTree> processes;
+			synchronized(this) {
+				processes = new ArrayList<>(this.processes);
+			}
+
+			for(ProcessTree process:processes) {
+				process.destroy(DESTROY_TIMEOUT);
+			}
+
+			List<Future<?>> tasks;
+			synchronized(this) {
+				tasks = new ArrayList<>(this.tasks);
+			}
+
+			for(Future<?> task:tasks) {
+				task.cancel(true);
+			}
+
+			for(Future<?> task:tasks) {
+				try {
+					task.get();
+				} catch(CancellationException | ExecutionException e) {
+				}
+			}
+		} catch(InterruptedException e) {
+			interrupted = true;
+		} finally {
+			if(interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private synchronized void checkCancelled() {
+		if(cancelled) {
+			throw new CancellationException();
+		}
+	}
+}
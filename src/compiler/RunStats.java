@@ -0,0 +1,249 @@
+package compiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timings and resource usage recorded during a run: the wall time of each phase, and for each
+ * process the time to start it, the time to its first output, its CPU time, its peak resident
+ * memory, and the amount of output.
+ */
+public class RunStats {
+	/** The length in seconds of a clock tick in /proc/[pid]/stat, which is 1/100 on Linux. */
+	private static final double CLOCK_TICK = 0.01;
+
+	private final List<Phase> phases = new ArrayList<>();
+	private final List<ProcessStats> processes = new ArrayList<>();
+
+	/**
+	 * The wall time of a phase of the run.
+	 */
+	public static class Phase {
+		private final String name;
+		private final long nanos;
+
+		public Phase(String name, long nanos) {
+			this.name = name;
+			this.nanos = nanos;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(nanos);
+		}
+	}
+
+	/**
+	 * The timings and resource usage of a single process.
+	 */
+	public static class ProcessStats {
+		private final String name;
+
+		private long spawnNanos = 0;
+		private long firstOutputNanos = -1;
+		private long runNanos = 0;
+		private long cpuMillis = -1;
+		private long peakRssKb = -1;
+		private long outputBytes = 0;
+		private long outputLines = 0;
+		private Integer exitValue = null;
+
+		public ProcessStats(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Returns the time taken to start the process.
+		 */
+		public synchronized long getSpawnMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(spawnNanos);
+		}
+
+		/**
+		 * Returns the time from the process starting to its first output, or -1 if there was no output.
+		 */
+		public synchronized long getFirstOutputMillis() {
+			return (firstOutputNanos < 0) ? -1 : TimeUnit.NANOSECONDS.toMillis(firstOutputNanos);
+		}
+
+		/**
+		 * Returns the time from the process starting to it exiting and its output being read.
+		 */
+		public synchronized long getRunMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(runNanos);
+		}
+
+		public synchronized long getRunNanos() {
+			return runNanos;
+		}
+
+		/**
+		 * Returns the user and system CPU time last sampled, or -1 if it couldn't be sampled.
+		 */
+		public synchronized long getCpuMillis() {
+			return cpuMillis;
+		}
+
+		/**
+		 * Returns the peak resident set size in kilobytes last sampled, or -1 if it couldn't be sampled.
+		 */
+		public synchronized long getPeakRssKb() {
+			return peakRssKb;
+		}
+
+		/**
+		 * Returns the number of bytes written to stdout and stderr.
+		 */
+		public synchronized long getOutputBytes() {
+			return outputBytes;
+		}
+
+		/**
+		 * Returns the number of lines written to stdout and stderr.
+		 */
+		public synchronized long getOutputLines() {
+			return outputLines;
+		}
+
+		/**
+		 * Returns the exit value of the process, or null if it didn't exit normally.
+		 */
+		public synchronized Integer getExitValue() {
+			return exitValue;
+		}
+
+		synchronized void setExitValue(int exitValue) {
+			this.exitValue = exitValue;
+		}
+
+		synchronized void setSpawnNanos(long spawnNanos) {
+			this.spawnNanos = spawnNanos;
+		}
+
+		synchronized void setFirstOutputNanos(long firstOutputNanos) {
+			this.firstOutputNanos = firstOutputNanos;
+		}
+
+		synchronized void setRunNanos(long runNanos) {
+			this.runNanos = runNanos;
+		}
+
+		synchronized void setOutput(long outputBytes, long outputLines) {
+			this.outputBytes = outputBytes;
+			this.outputLines = outputLines;
+		}
+
+		/**
+		 * Samples the CPU time and peak resident set size of a process and its descendants from /proc,
+		 * such as a program started by a wrapper script. The CPU time is the total for the processes,
+		 * and the peak resident set size is the largest of any of them. Does nothing if the processes
+		 * have exited or /proc isn't available.
+		 */
+		void sample(List<Long> pids) {
+			long cpuMillis = -1;
+			long peakRssKb = -1;
+
+			for(long pid:pids) {
+				File procDir = new File("/proc", String.valueOf(pid));
+
+				try {
+					// The fields after the command name, which is in brackets and may contain spaces.
+					String stat = new String(Files.readAllBytes(new File(procDir, "stat").toPath()), StandardCharsets.US_ASCII);
+					String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+					long ticks = Long.parseLong(fields[11]) + Long.parseLong(fields[12]);
+					cpuMillis = Math.max(cpuMillis, 0) + (long) (ticks * CLOCK_TICK * 1000);
+
+					for(String line:Files.readAllLines(new File(procDir, "status").toPath(), StandardCharsets.US_ASCII)) {
+						if(line.startsWith("VmHWM:")) {
+							peakRssKb = Math.max(peakRssKb, Long.parseLong(line.replaceAll("\\D", "")));
+						}
+					}
+				} catch(IOException | RuntimeException e) {
+					// The process has exited.
+				}
+			}
+
+			synchronized(this) {
+				this.cpuMillis = Math.max(this.cpuMillis, cpuMillis);
+				this.peakRssKb = Math.max(this.peakRssKb, peakRssKb);
+			}
+		}
+	}
+
+	/**
+	 * Records the wall time of a phase.
+	 */
+	public synchronized void addPhase(String name, long nanos) {
+		phases.add(new Phase(name, nanos));
+	}
+
+	/**
+	 * Adds a process to record the stats of.
+	 */
+	public synchronized ProcessStats addProcess(String name) {
+		ProcessStats process = new ProcessStats(name);
+		processes.add(process);
+		return process;
+	}
+
+	public synchronized List<Phase> getPhases() {
+		return new ArrayList<>(phases);
+	}
+
+	public synchronized List<ProcessStats> getProcesses() {
+		return new ArrayList<>(processes);
+	}
+
+	/**
+	 * Returns the stats of the program that was run, or null if it wasn't run.
+	 */
+	public synchronized ProcessStats getProgram() {
+		for(ProcessStats process:processes) {
+			if(process.getName().equals("run")) {
+				return process;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns a summary of the phase timings and the program's resource usage.
+	 */
+	public String getSummary() {
+		StringBuilder summary = new StringBuilder("Timing:");
+		for(Phase phase:getPhases()) {
+			summary.append(" " + phase.getName() + " " + phase.getMillis() + "ms,");
+		}
+		summary.setLength(summary.length() - 1);
+		summary.append("\n");
+
+		ProcessStats program = getProgram();
+		if(program != null) {
+			summary.append("Program: spawn " + program.getSpawnMillis() + "ms");
+			if(program.getFirstOutputMillis() >= 0) {
+				summary.append(", first output " + program.getFirstOutputMillis() + "ms");
+			}
+			if(program.getCpuMillis() >= 0) {
+				summary.append(", cpu " + program.getCpuMillis() + "ms");
+			}
+			if(program.getPeakRssKb() >= 0) {
+				summary.append(", peak rss " + (program.getPeakRssKb() / 1024) + "MB");
+			}
+			summary.append(", output " + program.getOutputBytes() + " bytes, " + program.getOutputLines() + " lines\n");
+		}
+
+		return summary.toString();
+	}
+}
@@ -0,0 +1,187 @@
+package compiler;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Keeps warm JVMs that run compiled Java programs without paying JVM startup for each run.
+ * Each run is loaded in a throwaway class loader, and a JVM is recycled after a number of
+ * runs or when too much heap remains in use after a run. Programs run in the working directory
+ * of the runner JVM, not the run directory, so relative file paths behave differently than in a new process.
+ */
+public class Runner {
+	private static ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true).build());
+	
+	private final String javaCommand;
+	private final int maxRuns;
+	private final long leakThreshold;
+
+	private final List<RunnerJvm> idle = new ArrayList<>();
+
+	/**
+	 * A child JVM running RunnerMain.
+	 */
+	class RunnerJvm {
+		private final Process process;
+		private final DataOutputStream control;
+		private final DataInputStream output;
+		private int runs = 0;
+
+		public RunnerJvm() throws IOException {
+			File dir = Files.createTempDirectory("scratchpad-runner").toFile();
+			dir.deleteOnExit();
+
+			process = new ProcessBuilder()
+				.directory(dir)
+				.command(javaCommand, "-cp", Classpath.getScratchPadClasspath(), RunnerMain.class.getName())
+				.redirectError(ProcessBuilder.Redirect.INHERIT)
+				.start();
+
+			control = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+			output = new DataInputStream(process.getInputStream());
+		}
+
+		/**
+		 * Sends a request to run the main method of a class.
+		 */
+		public void run(List<File> classpath, String mainClass) throws IOException {
+			runs++;
+
+			synchronized(control) {
+				control.writeByte(RunnerMain.RUN);
+				control.writeInt(classpath.size());
+				for(File file:classpath) {
+					control.writeUTF(file.getAbsolutePath());
+				}
+				control.writeUTF(mainClass);
+				control.flush();
+			}
+		}
+
+		/**
+		 * Sends bytes to the standard input of the current run.
+		 */
+		public void writeInput(byte[] b, int off, int len) throws IOException {
+			synchronized(control) {
+				control.writeByte(RunnerMain.STDIN);
+				control.writeInt(len);
+				control.write(b, off, len);
+				control.flush();
+			}
+		}
+
+		/**
+		 * Closes the standard input of the current run.
+		 */
+		public void closeInput() throws IOException {
+			synchronized(control) {
+				control.writeByte(RunnerMain.STDIN_CLOSED);
+				control.flush();
+			}
+		}
+
+		public DataInputStream getOutput() {
+			return output;
+		}
+
+		public Process getProcess() {
+			return process;
+		}
+
+		public int getRuns() {
+			return runs;
+		}
+
+		public void kill() {
+			process.destroyForcibly();
+		}
+	}
+
+	/**
+	 * Creates a runner.
+	 * @param javaCommand the java executable used to start runner JVMs.
+	 * @param maxRuns the number of runs before a JVM is replaced.
+	 * @param leakThreshold the heap in bytes that may remain in use after a run before the JVM is replaced.
+	 */
+	public Runner(String javaCommand, int maxRuns, long leakThreshold) {
+		this.javaCommand = javaCommand;
+		this.maxRuns = maxRuns;
+		this.leakThreshold = leakThreshold;
+	}
+
+	/**
+	 * Starts running the main class of a program on a warm JVM, returning a process
+	 * for the run.
+	 * @param dir the directory containing the compiled program.
+	 * @param mainClass the name of the class to run.
+	 * @param classpath the Java classpath.
+	 */
+	public Process start(File dir, String mainClass, String classpath) throws IOException {
+		List<File> files = new ArrayList<>(Arrays.asList(dir));
+		files.addAll(Classpath.resolve(dir, classpath));
+
+		RunnerJvm jvm = take();
+
+		try {
+			jvm.run(files, mainClass);
+		} catch(IOException e) {
+			// The idle JVM may have died, so retry once on a new one.
+			jvm.kill();
+			jvm = new RunnerJvm();
+			jvm.run(files, mainClass);
+		}
+
+		return new RunnerProcess(this, jvm);
+	}
+
+	/**
+	 * Returns an idle JVM, or starts a new one if there are none.
+	 */
+	private RunnerJvm take() throws IOException {
+		synchronized(idle) {
+			while(!idle.isEmpty()) {
+				RunnerJvm jvm = idle.remove(idle.size() - 1);
+				if(jvm.getProcess().isAlive()) {
+					return jvm;
+				}
+			}
+		}
+
+		return new RunnerJvm();
+	}
+
+	/**
+	 * Returns a JVM to the idle list after a run finishes, or shuts it down if it has reached
+	 * its run limit or leaked too much heap.
+	 */
+	void release(RunnerJvm jvm, long usedHeap) {
+		if(jvm.getRuns() >= maxRuns || usedHeap > leakThreshold) {
+			jvm.kill();
+			
+			// Start the replacement now so that the next run is still warm.
+			executor.submit(() -> {
+				RunnerJvm replacement = new RunnerJvm();
+				synchronized(idle) {
+					idle.add(replacement);
+				}
+				return null;
+			});
+			return;
+		}
+
+		synchronized(idle) {
+			idle.add(jvm);
+		}
+	}
+}
@@ -0,0 +1,283 @@
+package compiler;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * The main class of a warm runner JVM. Reads run requests from standard input, runs each program
+ * in its own class loader with redirected standard streams, and writes the program output and
+ * exit value back to standard output as frames.
+ * <p>
+ * Programs run with the working directory of the runner JVM rather than the directory they were
+ * compiled in, as a JVM can't change its working directory, so relative file paths don't resolve
+ * against the run directory as they do when a program is run in a new process.
+ */
+public class RunnerMain {
+	public static final int RUN = 1;
+	public static final int STDIN = 2;
+	public static final int STDIN_CLOSED = 3;
+
+	public static final int STDOUT = 1;
+	public static final int STDERR = 2;
+	public static final int EXIT = 3;
+
+	private final DataInputStream control;
+	private final DataOutputStream output;
+
+	private QueueInputStream stdin;
+
+	/**
+	 * A standard input that buffers everything written to it without limit, so that the control
+	 * stream is never blocked by a program that doesn't read its input.
+	 */
+	private static class QueueInputStream extends InputStream {
+		private static final byte[] END = new byte[0];
+
+		private final BlockingQueue<byte[]> chunks = new LinkedBlockingQueue<>();
+		private byte[] chunk = new byte[0];
+		private int position = 0;
+
+		public void add(byte[] bytes) {
+			if(bytes.length > 0) {
+				chunks.add(bytes);
+			}
+		}
+
+		public void close() {
+			chunks.add(END);
+		}
+
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			return (read(b, 0, 1) == -1) ? -1 : (b[0] & 0xff);
+		}
+
+		public synchronized int read(byte[] b, int off, int len) throws IOException {
+			if(len == 0) return 0;
+
+			while(chunk != END && position == chunk.length) {
+				try {
+					chunk = chunks.take();
+				} catch(InterruptedException e) {
+					throw new InterruptedIOException();
+				}
+				position = 0;
+			}
+
+			if(chunk == END) {
+				// Leave the end marker for any other reader.
+				chunks.add(END);
+				return -1;
+			}
+
+			int count = Math.min(len, chunk.length - position);
+			System.arraycopy(chunk, position, b, off, count);
+			position += count;
+			return count;
+		}
+
+		public synchronized int available() {
+			return (chunk == END) ? 0 : chunk.length - position;
+		}
+	}
+
+	/**
+	 * An output stream that sends everything written to it as frames of a single type.
+	 */
+	private class FrameOutputStream extends OutputStream {
+		private final int type;
+
+		public FrameOutputStream(int type) {
+			this.type = type;
+		}
+
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		public void write(byte[] b, int off, int len) throws IOException {
+			synchronized(output) {
+				output.writeByte(type);
+				output.writeInt(len);
+				output.write(b, off, len);
+				output.flush();
+			}
+		}
+	}
+
+	public RunnerMain(InputStream control, OutputStream output) {
+		this.control = new DataInputStream(control);
+		this.output = new DataOutputStream(new BufferedOutputStream(output));
+	}
+
+	public static void main(String[] args) throws Exception {
+		new RunnerMain(new FileInputStream(FileDescriptor.in), new FileOutputStream(FileDescriptor.out)).readRequests();
+	}
+
+	/**
+	 * Reads and handles requests until the control stream is closed.
+	 */
+	private void readRequests() throws IOException {
+		PrintStream out = new PrintStream(new BufferedOutputStream(new FrameOutputStream(STDOUT)), true, "UTF-8");
+		PrintStream err = new PrintStream(new FrameOutputStream(STDERR), true, "UTF-8");
+
+		System.setOut(out);
+		System.setErr(err);
+
+		Thread programThread = null;
+
+		while(true) {
+			int type;
+			try {
+				type = control.readByte();
+			} catch(IOException e) {
+				// Parent closed the control stream, so shut down.
+				return;
+			}
+
+			if(type == RUN) {
+				int classpathLength = control.readInt();
+				URL[] urls = new URL[classpathLength];
+				for(int i = 0; i < classpathLength; i++) {
+					urls[i] = Paths.get(control.readUTF()).toUri().toURL();
+				}
+				String mainClass = control.readUTF();
+
+				QueueInputStream in = new QueueInputStream();
+				stdin = in;
+
+				// Wait for the previous program on the new thread, so the control stream is always read.
+				Thread previous = programThread;
+				programThread = new Thread(() -> {
+					try {
+						if(previous != null) {
+							previous.join();
+						}
+					} catch(InterruptedException e) {
+						return;
+					}
+					System.setIn(in);
+					run(urls, mainClass, out, err);
+				}, "runner");
+				programThread.start();
+			} else if(type == STDIN) {
+				byte[] bytes = new byte[control.readInt()];
+				control.readFully(bytes);
+				stdin.add(bytes);
+			} else if(type == STDIN_CLOSED) {
+				stdin.close();
+			}
+		}
+	}
+
+	/**
+	 * Runs the main method of a class in a new class loader, waits for any non-daemon threads that
+	 * it started, and sends the exit value and the heap remaining in use afterwards.
+	 */
+	private void run(URL[] urls, String mainClass, PrintStream out, PrintStream err) {
+		int exitValue = 0;
+
+		ThreadGroup group = new ThreadGroup("program");
+
+		try(URLClassLoader classLoader = new URLClassLoader(urls, ClassLoader.getPlatformClassLoader())) {
+			Thread mainThread = new Thread(group, () -> {
+				try {
+					Method main = Class.forName(mainClass, true, classLoader).getMethod("main", String[].class);
+					main.invoke(null, (Object) new String[0]);
+				} catch(InvocationTargetException e) {
+					System.err.print("Exception in thread \"main\" ");
+					trimStackTrace(e.getCause()).printStackTrace();
+					throw new RuntimeException(e);
+				} catch(Exception e) {
+					System.err.println("Error: Could not run main class " + mainClass + ": " + e);
+					throw new RuntimeException(e);
+				}
+			}, "main");
+
+			final boolean[] failed = { false };
+			mainThread.setContextClassLoader(classLoader);
+			mainThread.setUncaughtExceptionHandler((thread, e) -> failed[0] = true);
+			mainThread.start();
+			mainThread.join();
+
+			joinNonDaemonThreads(group);
+
+			if(failed[0]) {
+				exitValue = 1;
+			}
+		} catch(Exception e) {
+			e.printStackTrace();
+			exitValue = 1;
+		}
+
+		out.flush();
+		err.flush();
+
+		Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		long usedHeap = runtime.totalMemory() - runtime.freeMemory();
+
+		try {
+			synchronized(output) {
+				output.writeByte(EXIT);
+				output.writeInt(exitValue);
+				output.writeLong(usedHeap);
+				output.flush();
+			}
+		} catch(IOException e) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Removes the reflection and runner frames below the main method from a stack trace.
+	 */
+	private static Throwable trimStackTrace(Throwable throwable) {
+		StackTraceElement[] stackTrace = throwable.getStackTrace();
+		for(int i = 0; i < stackTrace.length; i++) {
+			if(stackTrace[i].getClassName().startsWith("jdk.internal.reflect.")) {
+				throwable.setStackTrace(Arrays.copyOf(stackTrace, i));
+				break;
+			}
+		}
+		return throwable;
+	}
+
+	/**
+	 * Waits for all non-daemon threads in a thread group to finish, as the JVM would before exiting.
+	 */
+	private static void joinNonDaemonThreads(ThreadGroup group) throws InterruptedException {
+		while(true) {
+			Thread[] threads = new Thread[group.activeCount() + 1];
+			int count = group.enumerate(threads);
+
+			Thread remaining = null;
+			for(int i = 0; i < count; i++) {
+				if(!threads[i].isDaemon() && threads[i].isAlive()) {
+					remaining = threads[i];
+				}
+			}
+
+			if(remaining == null) return;
+
+			remaining.join();
+		}
+	}
+}
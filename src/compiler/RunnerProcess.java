@@ -0,0 +1,141 @@
+package compiler;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * A single program run on a warm runner JVM, presented as a process so that it can be
+ * used in place of a newly started one.
+ */
+public class RunnerProcess extends Process {
+	private static ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true).build());
+
+	private final Runner runner;
+	private final Runner.RunnerJvm jvm;
+
+	private final PipedInputStream inputStream = new PipedInputStream(65536);
+	private final PipedInputStream errorStream = new PipedInputStream(65536);
+	private final PipedOutputStream out;
+	private final PipedOutputStream err;
+
+	private final CountDownLatch finished = new CountDownLatch(1);
+	private volatile int exitValue;
+
+	public RunnerProcess(Runner runner, Runner.RunnerJvm jvm) throws IOException {
+		this.runner = runner;
+		this.jvm = jvm;
+		this.out = new PipedOutputStream(inputStream);
+		this.err = new PipedOutputStream(errorStream);
+
+		executor.submit(this::readOutput);
+	}
+
+	/**
+	 * Reads frames from the runner JVM until the run exits, copying program output to the
+	 * process streams.
+	 */
+	private void readOutput() {
+		DataInputStream output = jvm.getOutput();
+
+		try {
+			while(true) {
+				int type = output.readByte();
+
+				if(type == RunnerMain.EXIT) {
+					exitValue = output.readInt();
+					long usedHeap = output.readLong();
+					closeStreams();
+					runner.release(jvm, usedHeap);
+					break;
+				}
+
+				byte[] bytes = new byte[output.readInt()];
+				output.readFully(bytes);
+
+				try {
+					if(type == RunnerMain.STDOUT) {
+						out.write(bytes);
+					} else if(type == RunnerMain.STDERR) {
+						err.write(bytes);
+					}
+				} catch(IOException e) {
+					// Output is no longer being read.
+				}
+			}
+		} catch(IOException e) {
+			// The runner JVM exited, either from System.exit in the program or from being destroyed.
+			try {
+				exitValue = jvm.getProcess().waitFor();
+			} catch(InterruptedException e2) {
+				exitValue = 1;
+			}
+			closeStreams();
+		} finally {
+			finished.countDown();
+		}
+	}
+
+	private void closeStreams() {
+		try {
+			out.close();
+			err.close();
+		} catch(IOException e) {
+		}
+	}
+
+	public OutputStream getOutputStream() {
+		return new OutputStream() {
+			public void write(int b) throws IOException {
+				write(new byte[] { (byte) b }, 0, 1);
+			}
+
+			public void write(byte[] b, int off, int len) throws IOException {
+				if(finished.getCount() > 0) {
+					jvm.writeInput(b, off, len);
+				}
+			}
+
+			public void close() throws IOException {
+				if(finished.getCount() > 0) {
+					jvm.closeInput();
+				}
+			}
+		};
+	}
+
+	public InputStream getInputStream() {
+		return inputStream;
+	}
+
+	public InputStream getErrorStream() {
+		return errorStream;
+	}
+
+	public int waitFor() throws InterruptedException {
+		finished.await();
+		return exitValue;
+	}
+
+	public int exitValue() {
+		if(finished.getCount() > 0) {
+			throw new IllegalThreadStateException("Process has not exited");
+		}
+		return exitValue;
+	}
+
+	public void destroy() {
+		if(finished.getCount() > 0) {
+			// The program can't be stopped safely inside the JVM, so discard the whole JVM.
+			jvm.kill();
+		}
+	}
+}
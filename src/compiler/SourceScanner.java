@@ -0,0 +1,229 @@
+package compiler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Scans source code in a single pass for the name of the type declaring the main method and the
+ * directives in its line comments, such as "// DEP: ...". Words in comments and string literals
+ * are skipped, so commented out code or code in a string isn't mistaken for a declaration.
+ */
+public class SourceScanner {
+	/** The text of a directive comment, such as " DEP: org.jsoup jsoup 1.8.3". */
+	private static final Pattern DIRECTIVE_PATTERN = Pattern.compile("\\s*([A-Z]+):\\s*(.*?)\\s*");
+
+	private final CommentSyntax comments;
+
+	public SourceScanner(CommentSyntax comments) {
+		this.comments = comments;
+	}
+
+	/**
+	 * The results of scanning a source.
+	 */
+	public static class Scan {
+		private final String contents;
+		private final String mainType;
+		private final Map<String, List<String>> directives;
+
+		private Scan(String contents, String mainType, Map<String, List<String>> directives) {
+			this.contents = contents;
+			this.mainType = mainType;
+			this.directives = directives;
+		}
+
+		/**
+		 * Returns the source that was scanned.
+		 */
+		public String getContents() {
+			return contents;
+		}
+
+		/**
+		 * Returns the name of the public top-level type with a "public static void main(" method, or
+		 * null if there is none.
+		 */
+		public String getMainType() {
+			return mainType;
+		}
+
+		/**
+		 * Returns the values of the directives with a name, such as "DEP", in the order they appear.
+		 */
+		public List<String> getDirectives(String name) {
+			List<String> values = directives.get(name);
+			return (values == null) ? Collections.<String>emptyList() : values;
+		}
+	}
+
+	/**
+	 * Returns the results of scanning a source.
+	 */
+	public Scan scan(String contents) {
+		String line = comments.getLine();
+		String blockStart = comments.getBlockStart();
+		String blockEnd = comments.getBlockEnd();
+		// Compare the first character of each delimiter before the rest, as most characters don't start a comment.
+		char lineFirst = (line == null) ? 0 : line.charAt(0);
+		char blockFirst = (blockStart == null) ? 0 : blockStart.charAt(0);
+
+		Map<String, List<String>> directives = new LinkedHashMap<>();
+		String mainType = null;
+
+		// The words since the last ';', '{' or '}' outside of parentheses, which make up the
+		// header of the next declaration. Only kept outside of method bodies.
+		List<String> words = new ArrayList<>();
+		int depth = 0;
+		int parens = 0;
+		String type = null;
+		boolean publicType = false;
+
+		int i = 0;
+		while(i < contents.length()) {
+			char c = contents.charAt(i);
+
+			if(line != null && c == lineFirst && contents.startsWith(line, i)) {
+				int end = contents.indexOf('\n', i);
+				if(end == -1) end = contents.length();
+				if(isDirective(contents, i + line.length(), end)) {
+					addDirective(directives, contents.substring(i + line.length(), end));
+				}
+				i = end;
+			} else if(blockStart != null && c == blockFirst && contents.startsWith(blockStart, i)) {
+				int end = contents.indexOf(blockEnd, i + blockStart.length());
+				i = (end == -1) ? contents.length() : end + blockEnd.length();
+			} else if(c == '"' || c == '\'') {
+				i = findStringEnd(contents, i);
+			} else if(Character.isJavaIdentifierStart(c)) {
+				int end = i + 1;
+				while(end < contents.length() && Character.isJavaIdentifierPart(contents.charAt(end))) {
+					end++;
+				}
+				if(depth <= 1 && mainType == null) {
+					words.add(contents.substring(i, end));
+				}
+				i = end;
+			} else {
+				if(c == '(') {
+					if(depth == 1 && parens == 0 && mainType == null && publicType && isMainMethod(words)) {
+						mainType = type;
+					}
+					parens++;
+				} else if(c == ')') {
+					parens = Math.max(parens - 1, 0);
+				} else if(c == ';') {
+					// Statements can't be inside parentheses except in for loops, so recover from unbalanced ones.
+					parens = 0;
+					words.clear();
+				} else if(c == '{' && parens == 0) {
+					if(depth == 0) {
+						type = findTypeName(words);
+						publicType = words.contains("public");
+					}
+					depth++;
+					words.clear();
+				} else if(c == '}' && parens == 0) {
+					depth = Math.max(depth - 1, 0);
+					words.clear();
+				}
+				i++;
+			}
+		}
+
+		return new Scan(contents, mainType, directives);
+	}
+
+	/**
+	 * Returns whether the text of a comment starts with a directive name, without matching a pattern
+	 * against every comment.
+	 */
+	private static boolean isDirective(String contents, int start, int end) {
+		int i = start;
+		while(i < end && Character.isWhitespace(contents.charAt(i))) i++;
+		int nameStart = i;
+		while(i < end && contents.charAt(i) >= 'A' && contents.charAt(i) <= 'Z') i++;
+		return i > nameStart && i < end && contents.charAt(i) == ':';
+	}
+
+	/**
+	 * Adds the name and value of a directive comment, if the text of the comment is a directive.
+	 */
+	private static void addDirective(Map<String, List<String>> directives, String comment) {
+		Matcher matcher = DIRECTIVE_PATTERN.matcher(comment);
+		if(matcher.matches()) {
+			List<String> values = directives.get(matcher.group(1));
+			if(values == null) {
+				values = new ArrayList<>();
+				directives.put(matcher.group(1), values);
+			}
+			values.add(matcher.group(2));
+		}
+	}
+
+	/**
+	 * Returns whether the words before a '(' are the header of a main method.
+	 */
+	private static boolean isMainMethod(List<String> words) {
+		int size = words.size();
+		return size >= 2
+			&& words.get(size - 1).equals("main")
+			&& words.get(size - 2).equals("void")
+			&& words.contains("public")
+			&& words.contains("static");
+	}
+
+	/**
+	 * Returns the name of the type declared by the words before a '{', or null if they aren't a type declaration.
+	 */
+	private static String findTypeName(List<String> words) {
+		for(int i = 0; i < words.size() - 1; i++) {
+			String word = words.get(i);
+			if(word.equals("class") || word.equals("interface") || word.equals("enum") || word.equals("record")) {
+				return words.get(i + 1);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the index after the end of the string literal starting at start, skipping escaped quotes.
+	 * Only triple quoted literals continue past the end of a line, so an unterminated literal or a
+	 * quote used in a name doesn't hide the rest of the source.
+	 */
+	private static int findStringEnd(String contents, int start) {
+		char quote = contents.charAt(start);
+
+		if(isTripleQuote(contents, start, quote)) {
+			for(int i = start + 3; i < contents.length(); i++) {
+				if(contents.charAt(i) == '\\') {
+					i++;
+				} else if(isTripleQuote(contents, i, quote)) {
+					return i + 3;
+				}
+			}
+			return contents.length();
+		}
+
+		for(int i = start + 1; i < contents.length(); i++) {
+			char c = contents.charAt(i);
+			if(c == '\\') {
+				i++;
+			} else if(c == quote || c == '\n') {
+				return i + 1;
+			}
+		}
+		return contents.length();
+	}
+
+	private static boolean isTripleQuote(String contents, int start, char quote) {
+		return start + 2 < contents.length()
+			&& contents.charAt(start) == quote
+			&& contents.charAt(start + 1) == quote
+			&& contents.charAt(start + 2) == quote;
+	}
+}
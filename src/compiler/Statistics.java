@@ -0,0 +1,100 @@
+package compiler;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Summary statistics of a set of samples, such as the times of repeated runs.
+ */
+public class Statistics {
+	/** How many interquartile ranges outside the quartiles a sample must be to be an outlier. */
+	private static final double OUTLIER_FENCE = 1.5;
+
+	private final double[] sorted;
+
+	public Statistics(List<Double> samples) {
+		sorted = new double[samples.size()];
+		for(int i = 0; i < sorted.length; i++) {
+			sorted[i] = samples.get(i);
+		}
+		Arrays.sort(sorted);
+	}
+
+	private Statistics(double[] sorted) {
+		this.sorted = sorted;
+	}
+
+	/**
+	 * Returns the statistics of the samples that aren't outliers, which are those more than 1.5
+	 * interquartile ranges below the first quartile or above the third quartile.
+	 */
+	public Statistics withoutOutliers() {
+		if(sorted.length < 4) return this;
+
+		double lowerQuartile = getPercentile(25);
+		double upperQuartile = getPercentile(75);
+		double range = upperQuartile - lowerQuartile;
+		double low = lowerQuartile - OUTLIER_FENCE * range;
+		double high = upperQuartile + OUTLIER_FENCE * range;
+
+		int start = 0;
+		int end = sorted.length;
+		while(start < end && sorted[start] < low) start++;
+		while(end > start && sorted[end - 1] > high) end--;
+
+		return new Statistics(Arrays.copyOfRange(sorted, start, end));
+	}
+
+	public int getCount() {
+		return sorted.length;
+	}
+
+	public double getMin() {
+		return (sorted.length == 0) ? Double.NaN : sorted[0];
+	}
+
+	public double getMax() {
+		return (sorted.length == 0) ? Double.NaN : sorted[sorted.length - 1];
+	}
+
+	public double getMean() {
+		if(sorted.length == 0) return Double.NaN;
+
+		double total = 0;
+		for(double sample:sorted) {
+			total += sample;
+		}
+		return total / sorted.length;
+	}
+
+	public double getMedian() {
+		return getPercentile(50);
+	}
+
+	/**
+	 * Returns a percentile from 0 to 100, interpolating between the closest samples.
+	 */
+	public double getPercentile(double percentile) {
+		if(sorted.length == 0) return Double.NaN;
+
+		double rank = percentile / 100 * (sorted.length - 1);
+		int lower = (int) Math.floor(rank);
+		int upper = (int) Math.ceil(rank);
+		return sorted[lower] + (rank - lower) * (sorted[upper] - sorted[lower]);
+	}
+
+	/**
+	 * Returns the sample standard deviation, or 0 if there is only one sample.
+	 */
+	public double getStandardDeviation() {
+		if(sorted.length == 0) return Double.NaN;
+		if(sorted.length == 1) return 0;
+
+		double mean = getMean();
+		double total = 0;
+		for(double sample:sorted) {
+			total += (sample - mean) * (sample - mean);
+		}
+		return Math.sqrt(total / (sorted.length - 1));
+	}
+}
@@ -0,0 +1,122 @@
+package compiler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the output of a process in chunks as it arrives, decoding it as UTF-8 and passing the
+ * characters to an appender without waiting for a newline. Invalid or binary output is decoded
+ * with replacement characters rather than failing.
+ */
+public class StreamReader implements Runnable {
+	private static final int BUFFER_SIZE = 8192;
+
+	private final InputStream inputStream;
+	private final Appender appender;
+	private final Appender info;
+
+	private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+		.onMalformedInput(CodingErrorAction.REPLACE)
+		.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+	private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+	private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+
+	private volatile long bytesRead = 0;
+	private volatile long linesRead = 0;
+	private volatile long firstReadTime = 0;
+
+	public StreamReader(InputStream inputStream, Appender appender, Appender info) {
+		this.inputStream = inputStream;
+		this.appender = appender;
+		this.info = info;
+	}
+
+	public void run() {
+		try {
+			int read;
+			while((read = inputStream.read(bytes.array(), bytes.position(), bytes.remaining())) != -1) {
+				count(bytes.array(), bytes.position(), read);
+				bytes.position(bytes.position() + read);
+				bytes.flip();
+				decode(false);
+
+				// Keep any incomplete multi-byte character for the next read.
+				bytes.compact();
+			}
+
+			bytes.flip();
+			decode(true);
+
+			while(decoder.flush(chars).isOverflow()) {
+				appendChars();
+			}
+			appendChars();
+		} catch(IOException e) {
+			info.append("ERROR: IOException reading stream.\n");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Returns the number of bytes read so far.
+	 */
+	public long getBytesRead() {
+		return bytesRead;
+	}
+
+	/**
+	 * Returns the number of newlines read so far.
+	 */
+	public long getLinesRead() {
+		return linesRead;
+	}
+
+	/**
+	 * Returns the System.nanoTime() when output was first read, or 0 if nothing has been read.
+	 */
+	public long getFirstReadTime() {
+		return firstReadTime;
+	}
+
+	private void count(byte[] array, int offset, int length) {
+		if(firstReadTime == 0 && length > 0) {
+			firstReadTime = System.nanoTime();
+		}
+
+		int lines = 0;
+		for(int i = offset; i < offset + length; i++) {
+			if(array[i] == '\n') {
+				lines++;
+			}
+		}
+
+		bytesRead += length;
+		linesRead += lines;
+	}
+
+	/**
+	 * Decodes the available bytes, appending the characters each time the character buffer fills.
+	 */
+	private void decode(boolean endOfInput) {
+		CoderResult result;
+		do {
+			result = decoder.decode(bytes, chars, endOfInput);
+			appendChars();
+		} while(result.isOverflow());
+	}
+
+	private void appendChars() {
+		chars.flip();
+		if(chars.hasRemaining()) {
+			appender.append(chars.array(), chars.position(), chars.remaining());
+		}
+		chars.clear();
+	}
+}
@@ -0,0 +1,23 @@
+package compiler;
+
+/**
+ * Collects appended text in memory.
+ */
+public class StringAppender implements Appender {
+	private final StringBuilder text = new StringBuilder();
+
+	public synchronized void append(String s) {
+		text.append(s);
+	}
+
+	public synchronized void append(char[] chars, int offset, int length) {
+		text.append(chars, offset, length);
+	}
+
+	public void close() {
+	}
+
+	public synchronized String toString() {
+		return text.toString();
+	}
+}
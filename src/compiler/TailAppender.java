@@ -0,0 +1,48 @@
+package compiler;
+
+/**
+ * Passes appended text on to another appender, keeping the end of the text so that it can be
+ * checked after a process exits, such as for the error a program reported.
+ */
+public class TailAppender implements Appender {
+	private final Appender appender;
+	private final int maxChars;
+	private final StringBuilder tail = new StringBuilder();
+
+	/**
+	 * Creates an appender.
+	 * @param appender the appender to pass text on to.
+	 * @param maxChars the number of characters at the end of the text to keep.
+	 */
+	public TailAppender(Appender appender, int maxChars) {
+		this.appender = appender;
+		this.maxChars = maxChars;
+	}
+
+	public void append(String s) {
+		append(s.toCharArray(), 0, s.length());
+	}
+
+	public void append(char[] chars, int offset, int length) {
+		synchronized(tail) {
+			tail.append(chars, offset, length);
+			if(tail.length() > maxChars * 2) {
+				tail.delete(0, tail.length() - maxChars);
+			}
+		}
+		appender.append(chars, offset, length);
+	}
+
+	public void close() {
+		appender.close();
+	}
+
+	/**
+	 * Returns the last characters appended.
+	 */
+	public String getTail() {
+		synchronized(tail) {
+			return tail.substring(Math.max(0, tail.length() - maxChars));
+		}
+	}
+}
@@ -0,0 +1,313 @@
+package compiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * An input for a program and the output it is expected to write. Cases are read from a file beside
+ * the source named with a ".cases" suffix, and from directives in the source such as
+ * "// CASE small: 1 2 => 3", where "\n" in the input or output is a newline.
+ * <p>
+ * In a cases file, each case starts with a line "=== name", followed by its input, a line "---",
+ * and its expected output.
+ */
+public class TestCase {
+	private static final Pattern DIRECTIVE_PATTERN = Pattern.compile("(?://|#|--|%) CASE(?: ([\\w.-]+))?: (.*?) => (.*)");
+
+	/** The most lines of output compared line by line in a diff. */
+	private static final int MAX_DIFF_LINES = 1000;
+
+	private final String name;
+	private final String input;
+	private final String expected;
+
+	public TestCase(String name, String input, String expected) {
+		this.name = name;
+		this.input = input;
+		this.expected = expected;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getInput() {
+		return input;
+	}
+
+	public String getExpected() {
+		return expected;
+	}
+
+	/**
+	 * Returns whether a program's output matches the expected output, ignoring trailing whitespace on each line and at the end.
+	 */
+	public boolean matches(String output) {
+		return normalize(output).equals(normalize(expected));
+	}
+
+	/**
+	 * The result of running a program against a test case.
+	 */
+	public static class Result {
+		private final TestCase testCase;
+		private final String output;
+		private final String errors;
+		private final Integer exitValue;
+		private final long runMillis;
+		private final long peakRssKb;
+
+		public Result(TestCase testCase, String output, String errors, Integer exitValue, long runMillis, long peakRssKb) {
+			this.testCase = testCase;
+			this.output = output;
+			this.errors = errors;
+			this.exitValue = exitValue;
+			this.runMillis = runMillis;
+			this.peakRssKb = peakRssKb;
+		}
+
+		public TestCase getTestCase() {
+			return testCase;
+		}
+
+		public String getOutput() {
+			return output;
+		}
+
+		/**
+		 * Returns the output to stderr, and any limits the program exceeded.
+		 */
+		public String getErrors() {
+			return errors;
+		}
+
+		/**
+		 * Returns the exit value, or null if the program didn't exit normally.
+		 */
+		public Integer getExitValue() {
+			return exitValue;
+		}
+
+		public long getRunMillis() {
+			return runMillis;
+		}
+
+		/**
+		 * Returns the peak resident set size in kilobytes, or -1 if it wasn't sampled.
+		 */
+		public long getPeakRssKb() {
+			return peakRssKb;
+		}
+
+		/**
+		 * Returns whether the program exited successfully with the expected output.
+		 */
+		public boolean isPassed() {
+			return exitValue != null && exitValue == 0 && testCase.matches(output);
+		}
+	}
+
+	/**
+	 * Returns the test cases for a source file: those in a ".cases" file beside it, followed by those in
+	 * directives in the source.
+	 * @param file the source file, or null if it hasn't been saved.
+	 */
+	public static List<TestCase> load(File file, String contents) throws IOException {
+		List<TestCase> cases = new ArrayList<>();
+
+		if(file != null) {
+			File casesFile = new File(file.getPath() + ".cases");
+			if(casesFile.isFile()) {
+				cases.addAll(parse(FileUtils.readFileToString(casesFile, StandardCharsets.UTF_8)));
+			}
+		}
+
+		cases.addAll(parseDirectives(contents));
+
+		return cases;
+	}
+
+	/**
+	 * Returns the test cases in the text of a cases file.
+	 */
+	public static List<TestCase> parse(String text) {
+		List<TestCase> cases = new ArrayList<>();
+
+		String name = null;
+		StringBuilder input = new StringBuilder();
+		StringBuilder expected = null;
+
+		for(String line:text.split("\n", -1)) {
+			if(line.startsWith("=== ") || line.equals("===")) {
+				if(name != null) {
+					cases.add(new TestCase(name, input.toString(), (expected == null) ? "" : expected.toString()));
+				}
+				name = line.substring(3).trim();
+				if(name.isEmpty()) {
+					name = String.valueOf(cases.size() + 1);
+				}
+				input.setLength(0);
+				expected = null;
+			} else if(name == null) {
+				// Ignore text before the first case.
+			} else if(expected == null && line.equals("---")) {
+				expected = new StringBuilder();
+			} else {
+				(expected == null ? input : expected).append(line).append('\n');
+			}
+		}
+
+		if(name != null) {
+			cases.add(new TestCase(name, input.toString(), (expected == null) ? "" : expected.toString()));
+		}
+
+		return cases;
+	}
+
+	/**
+	 * Returns the test cases in directives in the source.
+	 */
+	public static List<TestCase> parseDirectives(String contents) {
+		List<TestCase> cases = new ArrayList<>();
+
+		Matcher matcher = DIRECTIVE_PATTERN.matcher(contents);
+		while(matcher.find()) {
+			String name = (matcher.group(1) == null) ? "line " + (countLines(contents, matcher.start()) + 1) : matcher.group(1);
+			cases.add(new TestCase(name, unescape(matcher.group(2)) + "\n", unescape(matcher.group(3)) + "\n"));
+		}
+
+		return cases;
+	}
+
+	/**
+	 * Returns a diff of the expected and actual output, with lines only in the expected output starting
+	 * with '-', lines only in the actual output starting with '+', and common lines starting with ' '.
+	 */
+	public static String diff(String expected, String actual) {
+		String[] a = normalize(expected).split("\n", -1);
+		String[] b = normalize(actual).split("\n", -1);
+
+		if(a.length > MAX_DIFF_LINES || b.length > MAX_DIFF_LINES) {
+			return diffFirstLine(a, b);
+		}
+
+		// Find the longest common subsequence of lines from the end.
+		int[][] common = new int[a.length + 1][b.length + 1];
+		for(int i = a.length - 1; i >= 0; i--) {
+			for(int j = b.length - 1; j >= 0; j--) {
+				common[i][j] = a[i].equals(b[j]) ? common[i + 1][j + 1] + 1 : Math.max(common[i + 1][j], common[i][j + 1]);
+			}
+		}
+
+		StringBuilder diff = new StringBuilder();
+		int i = 0;
+		int j = 0;
+		while(i < a.length || j < b.length) {
+			if(i < a.length && j < b.length && a[i].equals(b[j])) {
+				diff.append(" ").append(a[i++]).append('\n');
+				j++;
+			} else if(i < a.length && (j == b.length || common[i + 1][j] >= common[i][j + 1])) {
+				diff.append("-").append(a[i++]).append('\n');
+			} else {
+				diff.append("+").append(b[j++]).append('\n');
+			}
+		}
+		return diff.toString();
+	}
+
+	/**
+	 * Returns the results as a table, followed by the diff and errors of each failed case.
+	 */
+	public static String formatResults(List<Result> results) {
+		int nameWidth = 4;
+		for(Result result:results) {
+			nameWidth = Math.max(nameWidth, result.getTestCase().getName().length());
+		}
+
+		StringBuilder table = new StringBuilder();
+		String format = "%-" + nameWidth + "s  %-6s  %8s  %8s\n";
+		table.append(String.format(format, "Case", "Result", "Time", "Memory"));
+
+		int passed = 0;
+		for(Result result:results) {
+			String status = result.isPassed() ? "PASS" : (result.getExitValue() != null && result.getExitValue() != 0) ? "ERROR" : "FAIL";
+			String memory = (result.getPeakRssKb() < 0) ? "-" : (result.getPeakRssKb() / 1024) + "MB";
+			table.append(String.format(format, result.getTestCase().getName(), status, result.getRunMillis() + "ms", memory));
+
+			if(result.isPassed()) {
+				passed++;
+			}
+		}
+
+		table.append(passed + " of " + results.size() + " passed\n");
+
+		for(Result result:results) {
+			if(!result.isPassed()) {
+				table.append("\n--- " + result.getTestCase().getName() + " (-expected, +actual)\n");
+				table.append(diff(result.getTestCase().getExpected(), result.getOutput()));
+				if(!result.getErrors().isEmpty()) {
+					table.append(result.getErrors());
+					if(!result.getErrors().endsWith("\n")) {
+						table.append("\n");
+					}
+				}
+			}
+		}
+
+		return table.toString();
+	}
+
+	/**
+	 * Returns a diff of only the first line that differs, for outputs too long to compare line by line.
+	 */
+	private static String diffFirstLine(String[] a, String[] b) {
+		for(int i = 0; i < Math.max(a.length, b.length); i++) {
+			String expectedLine = (i < a.length) ? a[i] : null;
+			String actualLine = (i < b.length) ? b[i] : null;
+			if(expectedLine == null || !expectedLine.equals(actualLine)) {
+				return "First difference at line " + (i + 1) + ":\n"
+					+ ((expectedLine == null) ? "" : "-" + expectedLine + "\n")
+					+ ((actualLine == null) ? "" : "+" + actualLine + "\n");
+			}
+		}
+		return "";
+	}
+
+	/**
+	 * Returns output with trailing whitespace removed from each line and from the end.
+	 */
+	private static String normalize(String output) {
+		return output.replaceAll("[ \\t\\r]+(?=\\n|$)", "").replaceAll("\\n+$", "");
+	}
+
+	private static String unescape(String s) {
+		StringBuilder unescaped = new StringBuilder();
+		for(int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if(c == '\\' && i + 1 < s.length()) {
+				char next = s.charAt(++i);
+				unescaped.append((next == 'n') ? '\n' : (next == 't') ? '\t' : next);
+			} else {
+				unescaped.append(c);
+			}
+		}
+		return unescaped.toString().trim();
+	}
+
+	private static int countLines(String s, int end) {
+		int lines = 0;
+		for(int i = 0; i < end; i++) {
+			if(s.charAt(i) == '\n') {
+				lines++;
+			}
+		}
+		return lines;
+	}
+}
@@ -0,0 +1,171 @@
+package compiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * The directories that programs are compiled and run in. By default each run gets a new temporary
+ * directory. A reusable workspace instead keeps stable directories per language so that incremental
+ * state such as compiled modules is kept between runs. The files of a single run, its sources, linked
+ * dependencies and outputs, are removed between runs so that they don't affect the next snippet, and a
+ * directory is only emptied once it grows over its maximum size. Directories are cleaned and deleted
+ * by a background reaper so that runs finish without waiting for them.
+ */
+public class Workspace {
+	private static ExecutorService reaper = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setDaemon(true).setPriority(Thread.MIN_PRIORITY).build());
+
+	private final File baseDir;
+	private final String extension;
+	private final long maxSize;
+	private final List<String> outputs;
+
+	private final Map<File, FileLock> locks = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates a reusable workspace.
+	 * @param baseDir the directory to create the workspace directories in, such as a tmpfs mount.
+	 * @param name a name for the workspace directories, unique to the language.
+	 * @param extension the file extension of the language's sources, which are removed between runs.
+	 * @param maxSize the size in bytes above which a workspace directory is emptied after a run.
+	 * @param outputs wildcard patterns such as "main" or "*.class" matching the files each run creates that
+	 * aren't kept for the next one, as opposed to incremental compiler state.
+	 */
+	public Workspace(File baseDir, String name, String extension, long maxSize, List<String> outputs) {
+		this.baseDir = new File(baseDir, "scratchpad-" + name.replaceAll("\\W", "_"));
+		this.extension = extension;
+		this.maxSize = maxSize;
+		this.outputs = outputs;
+	}
+
+	/**
+	 * Returns a directory for a run that isn't in use by any other run, including runs in other
+	 * ScratchPad instances, without the files of any previous run.
+	 */
+	public File acquire() throws IOException {
+		baseDir.mkdirs();
+
+		for(int n = 0; ; n++) {
+			File dir = new File(baseDir, String.valueOf(n));
+			FileLock lock = tryLock(new File(baseDir, n + ".lock"));
+			if(lock != null) {
+				try {
+					dir.mkdirs();
+					
+					// Directories are cleaned when they are released, but may have been left by an instance that exited first.
+					cleanRun(dir);
+				} catch(IOException | RuntimeException e) {
+					lock.channel().close();
+					throw e;
+				}
+				locks.put(dir, lock);
+				return dir;
+			}
+		}
+	}
+
+	/**
+	 * Releases a directory acquired from this workspace, removing the files of the run in the background,
+	 * and emptying it if it has grown too large. The directory stays locked until then, so it isn't
+	 * acquired by another run first.
+	 */
+	public void release(File dir) {
+		FileLock lock = locks.remove(dir);
+		if(lock == null) return;
+
+		reaper.submit(() -> {
+			try {
+				if(FileUtils.sizeOf(dir) > maxSize) {
+					FileUtils.cleanDirectory(dir);
+				} else {
+					cleanRun(dir);
+				}
+			} catch(IOException | IllegalArgumentException e) {
+				e.printStackTrace();
+			} finally {
+				try {
+					lock.channel().close();
+				} catch(IOException e) {
+				}
+			}
+		});
+	}
+
+	/**
+	 * Removes the files of a run from a directory: its sources, the lib directory its dependencies are
+	 * linked into, and its outputs.
+	 */
+	private void cleanRun(File dir) throws IOException {
+		File[] files = dir.listFiles();
+		if(files == null) return;
+
+		for(File file:files) {
+			String name = file.getName();
+			if(name.equals("lib") || isSource(name) || isOutput(name)) {
+				FileUtils.forceDelete(file);
+			}
+		}
+	}
+
+	private boolean isSource(String name) {
+		return !extension.isEmpty() && FilenameUtils.isExtension(name, extension);
+	}
+
+	private boolean isOutput(String name) {
+		for(String output:outputs) {
+			if(FilenameUtils.wildcardMatch(name, output)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns a new temporary directory for a single run.
+	 */
+	public static File createTempDirectory() throws IOException {
+		return Files.createTempDirectory("scratchpad").toFile();
+	}
+
+	/**
+	 * Deletes a directory in the background.
+	 */
+	public static void delete(File dir) {
+		reaper.submit(() -> FileUtils.deleteQuietly(dir));
+	}
+
+	/**
+	 * Returns an exclusive lock on a file, or null if it is held by another run.
+	 */
+	private static FileLock tryLock(File file) throws IOException {
+		FileChannel channel = new RandomAccessFile(file, "rw").getChannel();
+		try {
+			FileLock lock = channel.tryLock();
+			if(lock == null) {
+				channel.close();
+			}
+			return lock;
+		} catch(OverlappingFileLockException e) {
+			// Held by another run in this JVM.
+			channel.close();
+			return null;
+		} catch(IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+}
@@ -36,12 +36,16 @@ public class ConsoleAppender implements Appender {
 	}
 	
 	public synchronized void append(final String s) {
-		if(color == null) {
-			buffer.append(s);
-		} else {
-			buffer.append(color + s + COLOR_OFF);
-		}
-		
+		buffer.append(s);
+		scheduleFlush();
+	}
+	
+	public synchronized void append(char[] chars, int offset, int length) {
+		buffer.append(chars, offset, length);
+		scheduleFlush();
+	}
+	
+	private void scheduleFlush() {
 		if(!timerRunning) {
 			timerRunning = true;
 			
@@ -63,12 +67,50 @@ public class ConsoleAppender implements Appender {
 	}
 	
 	private synchronized void flush() {
-		if(!closed) {
-			consoleText.append(buffer.toString());
-			buffer.setLength(0);
+		// Output arrives in chunks, so hold back an escape sequence that hasn't been completed yet.
+		write(getCompleteLength(buffer));
+	}
+	
+	/**
+	 * Writes the start of the buffered text to the console. The color is added around all the text
+	 * written at once rather than around each chunk as it is appended, so that it doesn't split an
+	 * escape sequence in the output.
+	 */
+	private void write(int end) {
+		if(closed || end == 0) return;
+		
+		String text = buffer.substring(0, end);
+		buffer.delete(0, end);
+		consoleText.append((color == null) ? text : color + text + COLOR_OFF);
+	}
+	
+	/**
+	 * Returns the length of text excluding any incomplete ansi escape sequence at the end.
+	 */
+	private static int getCompleteLength(StringBuilder text) {
+		int escape = text.lastIndexOf("\u001B");
+		if(escape == -1 || text.length() - escape > 32) return text.length();
+		
+		for(int i = escape + 2; i < text.length(); i++) {
+			if(Character.isLetter(text.charAt(i))) {
+				return text.length();
+			}
 		}
+		
+		return escape;
 	}
 	
+	/**
+	 * Writes all the buffered text, including an incomplete escape sequence held back from the end,
+	 * once no more text will be appended. Must be called on the display thread.
+	 */
+	public synchronized void finish() {
+		write(buffer.length());
+	}
+	
+	/**
+	 * Discards any buffered and later text, such as when the console is cleared for a new run.
+	 */
 	public synchronized void close() {
 		closed = true;
 	}
@@ -2,20 +2,26 @@ package controller;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Future;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Shell;
 
 import com.google.common.eventbus.EventBus;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
+import compiler.Benchmark;
 import compiler.Compiler;
 import compiler.Importer;
 import compiler.Language;
 import compiler.Languages;
+import compiler.TestCase;
 import event.EnabledChangedEvent;
 import event.LanguageChangedEvent;
 import event.ModifiedEvent;
@@ -25,9 +31,12 @@ import ui.EditFunctions;
 import ui.EditorText;
 import ui.ImportDialog;
 import ui.InputText;
-import util.StringUtil;
 
 public class MainController {
+	private static final int PREFETCH_DELAY = 1000;
+	
+	private static ExecutorService prefetchExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setDaemon(true).setPriority(Thread.MIN_PRIORITY).build());
+	
 	private final Shell shell;
 	private final EditorText editorText;
 	private final InputText inputText;
@@ -42,7 +51,15 @@ public class MainController {
 	private String jarDir = null;
 	private String classpath = null;
 	
-	private Future<?> runningProgram;
+	private Compiler.Run runningProgram;
+	private int runGeneration = 0;
+	private boolean liveRun = false;
+	private boolean interactive = false;
+	private String sentInput = "";
+	private String lastRunKey = null;
+	private Benchmark lastBenchmark = null;
+	private List<String> prefetchedDependencies = new ArrayList<>();
+	
 	private ConsoleAppender out;
 	private ConsoleAppender err;
 	private ConsoleAppender info;
@@ -61,32 +78,165 @@ public class MainController {
 			}
 		});
 		
+		inputText.setModifiedCallback(new Callback<Void>() {
+			public void onCallback(Void param) {
+				sendInputLines();
+			}
+		});
+		
 		editorText.setModifiedCallback(new Callback<Void>() {
 			public void onCallback(Void param) {
 				modified = true;
 				eventBus.post(new ModifiedEvent(modified));
+				
+				// Start processes for the next run while the user is editing.
+				if(language != null) {
+					language.fillPool(getClasspath());
+				}
+				
+				// Restart the timer on each modification so dependencies are only prefetched once typing stops.
+				Display.getDefault().timerExec(PREFETCH_DELAY, prefetchDependencies);
+				
+				if(liveRun) {
+					Display.getDefault().timerExec(Languages.getLiveRunDelay(), runLive);
+				}
 			}
 		});
 	}
+	
+	/**
+	 * Sets whether programs are run interactively, with their output line buffered in a terminal and
+	 * input typed into the console or input pane sent to them as it is typed.
+	 */
+	public void setInteractive(boolean interactive) {
+		this.interactive = interactive;
+		
+		if(interactive) {
+			consoleText.setInputCallback(new Callback<String>() {
+				public void onCallback(String line) {
+					if(runningProgram == null) return;
+					
+					if(line == null) {
+						runningProgram.getInput().close();
+					} else {
+						runningProgram.getInput().write(line);
+					}
+				}
+			});
+		} else {
+			consoleText.setInputCallback(null);
+		}
+	}
+	
+	/**
+	 * Sets a file to use as the program input instead of the text in the input pane, or null to use the text.
+	 */
+	public void setInputFile(String path) throws IOException {
+		inputText.setInputFile((path == null) ? null : new File(path));
+		eventBus.post(new EnabledChangedEvent());
+	}
+	
+	public File getInputFile() {
+		return inputText.getInputFile();
+	}
+	
+	public boolean getInteractive() {
+		return interactive;
+	}
+	
+	/**
+	 * Sends lines completed in the input pane since the run started to an interactive run.
+	 */
+	private void sendInputLines() {
+		if(!interactive || runningProgram == null) return;
+		
+		String text = inputText.getText();
+		if(!text.startsWith(sentInput)) return;
+		
+		int end = text.lastIndexOf('\n');
+		if(end >= sentInput.length()) {
+			runningProgram.getInput().write(text.substring(sentInput.length(), end + 1));
+			sentInput = text.substring(0, end + 1);
+		}
+	}
+	
+	/**
+	 * Reruns the program in live mode, unless the edits since the last run only changed comments or whitespace.
+	 */
+	private final Runnable runLive = new Runnable() {
+		public void run() {
+			if(!liveRun || language == null || editorText.getControl().isDisposed()) return;
+			
+			if(getRunKey(editorText.getText(), inputText.getText()).equals(lastRunKey)) return;
+			
+			compile();
+		}
+	};
+	
+	/**
+	 * Returns a key that is the same for two runs that would run the same program with the same input.
+	 */
+	private String getRunKey(String source, String input) {
+		File inputFile = inputText.getInputFile();
+		if(inputFile != null) {
+			input = inputFile.getPath() + "\0" + inputFile.length() + "\0" + inputFile.lastModified();
+		}
+		
+		return language.getName() + "\0" + language.normalize(source) + "\0" + input;
+	}
+	
+	/**
+	 * Sets whether to rerun the program automatically after the user stops typing.
+	 */
+	public void setLiveRun(boolean liveRun) {
+		this.liveRun = liveRun;
+		
+		if(liveRun) {
+			Display.getDefault().timerExec(Languages.getLiveRunDelay(), runLive);
+		}
+	}
+	
+	public boolean getLiveRun() {
+		return liveRun;
+	}
+	
+	/**
+	 * Starts downloading any new or changed dependencies in the source in the background.
+	 */
+	private final Runnable prefetchDependencies = new Runnable() {
+		public void run() {
+			if(language == null || editorText.getControl().isDisposed()) return;
+			
+			final Language language = MainController.this.language;
+			final List<String> dependencies = language.getDependencies(editorText.getText());
+			
+			if(dependencies.isEmpty() || dependencies.equals(prefetchedDependencies)) return;
+			prefetchedDependencies = dependencies;
+			
+			prefetchExecutor.submit(new Runnable() {
+				public void run() {
+					try {
+						language.prefetchDependencies(dependencies);
+					} catch(Exception e) {
+						e.printStackTrace();
+					}
+				}
+			});
+		}
+	};
 
 	public void setLanguageFromName(String name) {
-		for(Language language:Languages.getLanguages()) {
-			if(language.getName().equalsIgnoreCase(name)) {
-				setLanguage(language);
-				return;
-			}
+		Language language = Languages.getLanguage(name);
+		if(language != null) {
+			setLanguage(language);
 		}
 	}
 	
 	public void setLanguageFromFilename(String name) {
-		String extension = StringUtil.match(name, "\\.(.*)$");
-		if(extension != null) {
-			for(Language language:Languages.getLanguages()) {
-				if(language.getExtension().equals(extension)) {
-					setLanguage(language);
-					return;
-				}
-			}
+		String extension = FilenameUtils.getExtension(name);
+		Language language = extension.isEmpty() ? null : Languages.getLanguageForExtension(extension);
+		if(language != null) {
+			setLanguage(language);
 		}
 	}
 	
@@ -169,19 +319,23 @@ public class MainController {
 	public void compile() {
 		final String source = editorText.getText();
 		final String input = inputText.getText();
+		final Compiler.Run previous = runningProgram;
+		final int generation = ++runGeneration;
 
 		stop();
-		consoleText.clear();
-		
-		out = new ConsoleAppender(consoleText, null);
-		err = new ConsoleAppender(consoleText, ConsoleAppender.COLOR_RED);
-		info = new ConsoleAppender(consoleText, ConsoleAppender.COLOR_BLUE);
+		clearConsole();
 		
+		// Output from older runs can't reach the console because their appenders were closed by stop().
 		try {
+			lastRunKey = getRunKey(source, input);
+			sentInput = input;
+			
 			Compiler compiler = new Compiler(language, getClasspath());
-			runningProgram = compiler.runFile(source, input, out, err, info, new Callback<Void>() {
+			compiler.setInteractive(interactive);
+			compiler.setInputFile(inputText.getInputFile());
+			runningProgram = compiler.runFile(previous, source, input, out, err, info, new Callback<Void>() {
 				public void onCallback(Void param) {
-					fireRunningChanged(false);
+					fireRunFinished(generation);
 				}
 			});
 		} catch(Exception e) {
@@ -191,6 +345,103 @@ public class MainController {
 		fireRunningChanged(true);
 	}
 	
+	/**
+	 * Compiles the program once and runs it against each of its test cases, displaying a table of the results.
+	 */
+	public void runTests() throws IOException {
+		final String source = editorText.getText();
+		final List<TestCase> cases = TestCase.load(file, source);
+		final Compiler.Run previous = runningProgram;
+		final int generation = ++runGeneration;
+		
+		stop();
+		clearConsole();
+		
+		if(cases.isEmpty()) {
+			info.append("No test cases found. Add lines such as \"// CASE name: input => expected output\" to the source,"
+				+ " or save it and add a file beside it with a .cases suffix.\n");
+			
+			// The stopped run's finish is ignored now that the generation has changed, so report it here.
+			fireRunningChanged(false);
+			return;
+		}
+		
+		// Force the next live run, since the console no longer shows its output.
+		lastRunKey = null;
+		
+		Compiler compiler = new Compiler(language, getClasspath());
+		runningProgram = compiler.runCases(previous, source, cases, out, err, info, new Callback<List<TestCase.Result>>() {
+			public void onCallback(List<TestCase.Result> results) {
+				fireRunFinished(generation);
+			}
+		});
+		
+		fireRunningChanged(true);
+	}
+	
+	/**
+	 * Compiles the program once and runs it repeatedly with the same input, displaying statistics of its
+	 * run times. The number of runs is set by a directive such as "// BENCHMARK: warmup=3 runs=20".
+	 */
+	public void runBenchmark() {
+		final String source = editorText.getText();
+		final String input = inputText.getText();
+		final Compiler.Run previous = runningProgram;
+		final int generation = ++runGeneration;
+		
+		stop();
+		clearConsole();
+		
+		// Force the next live run, since the console no longer shows its output.
+		lastRunKey = null;
+		
+		Compiler compiler = new Compiler(language, getClasspath());
+		compiler.setInputFile(inputText.getInputFile());
+		runningProgram = compiler.runBenchmark(previous, source, input, Benchmark.fromDirectives(source), out, err, info, new Callback<Benchmark>() {
+			public void onCallback(final Benchmark benchmark) {
+				Display.getDefault().asyncExec(new Runnable() {
+					public void run() {
+						if(generation == runGeneration && !benchmark.getSamples().isEmpty()) {
+							lastBenchmark = benchmark;
+							eventBus.post(new EnabledChangedEvent());
+						}
+					}
+				});
+				fireRunFinished(generation);
+			}
+		});
+		
+		fireRunningChanged(true);
+	}
+	
+	/**
+	 * Writes the samples of the last benchmark to a file, as JSON if its name ends with ".json" and as CSV otherwise.
+	 */
+	public void exportBenchmark(String path) throws IOException {
+		if(lastBenchmark == null) return;
+		
+		String contents = path.toLowerCase().endsWith(".json") ? lastBenchmark.toJson() : lastBenchmark.toCsv();
+		FileUtils.writeStringToFile(new File(path), contents, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Returns whether there is a finished benchmark to export.
+	 */
+	public boolean getBenchmarkExportEnabled() {
+		return lastBenchmark != null;
+	}
+	
+	/**
+	 * Clears the console and creates new appenders to write to it.
+	 */
+	private void clearConsole() {
+		consoleText.clear();
+		
+		out = new ConsoleAppender(consoleText, null);
+		err = new ConsoleAppender(consoleText, ConsoleAppender.COLOR_RED);
+		info = new ConsoleAppender(consoleText, ConsoleAppender.COLOR_BLUE);
+	}
+	
 	public void stop() {
 		if(runningProgram != null) {
 			runningProgram.cancel(true);
@@ -215,6 +466,25 @@ public class MainController {
 		}
 	}
 	
+	/**
+	 * Reports that a run has finished and writes the rest of its output, unless a newer run has been started since.
+	 */
+	private void fireRunFinished(final int generation) {
+		Display.getDefault().asyncExec(new Runnable() {
+			public void run() {
+				if(generation != runGeneration) return;
+				
+				out.finish();
+				err.finish();
+				info.finish();
+				
+				if(runningChangedCallback != null) {
+					runningChangedCallback.onCallback(false);
+				}
+			}
+		});
+	}
+	
 	private EditFunctions getFocusedEditFunctions() {
 		if(editorText.hasFocus()) {
 			return editorText.getEditFunctions();
@@ -104,15 +104,28 @@ public class Completion {
 		}
 		
 		completionIndex = 0;
-		completions = new ArrayList<>();
+		completions = findCompletions(prefix, suffix);
+		
+		if(!completions.isEmpty()) {
+			// The last completion is the word being completed.
+			wordStartOffset = offset - completions.get(completions.size() - 1).length();
+		}
+	}
+	
+	/**
+	 * Returns the words in the text that start with the word before the caret, nearest first, followed by the
+	 * word itself. Returns an empty list if the caret isn't after a word.
+	 * @param prefix the text before the caret.
+	 * @param suffix the text after the caret.
+	 */
+	static List<String> findCompletions(String prefix, String suffix) {
+		List<String> completions = new ArrayList<>();
 
 		String completionPrefix = StringUtil.match(prefix, "[\\w_]+$");
 		if(completionPrefix == null) {
-			return;
+			return completions;
 		}
 		
-		wordStartOffset = offset - completionPrefix.length();
-		
 		String[] prefixWords = prefix.split("[^\\w_]+");
 		String[] suffixWords = suffix.split("[^\\w_]+");
 		ArrayUtils.reverse(prefixWords);
@@ -131,5 +144,6 @@ public class Completion {
 		}
 		
 		completions.add(completionPrefix);
+		return completions;
 	}
 }
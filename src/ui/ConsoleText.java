@@ -24,6 +24,10 @@ public class ConsoleText {
 	private List<StyleRange> styles = new ArrayList<StyleRange>();
 	private AnsiStyle lastStyle;
 	
+	private Callback<String> inputCallback = null;
+	private StringBuilder inputLine = new StringBuilder();
+	private int echoEnd = -1;
+	
 	public ConsoleText(Composite parent) {
 		text = new StyledText(parent, SWT.WRAP | SWT.V_SCROLL);
 		text.setEditable(false);
@@ -35,7 +39,11 @@ public class ConsoleText {
 				if((event.stateMask & SWT.CTRL) > 0) {
 					if(event.keyCode == 'a') {
 						selectAll();
+					} else if(event.keyCode == 'd' && inputCallback != null) {
+						endInput();
 					}
+				} else if(inputCallback != null && event.character != 0) {
+					typeInput(event.character);
 				}
 			}
 		});
@@ -48,6 +56,54 @@ public class ConsoleText {
 		clear();
 	}
 	
+	/**
+	 * Sets the callback to send input typed into the console to, a line at a time, or null if
+	 * the console doesn't accept input. The callback is called with null when Ctrl+D is pressed
+	 * to end the input.
+	 */
+	public void setInputCallback(Callback<String> inputCallback) {
+		this.inputCallback = inputCallback;
+		inputLine.setLength(0);
+	}
+	
+	/**
+	 * Echoes a typed character, and sends the line when enter is pressed.
+	 */
+	private void typeInput(char c) {
+		if(c == '\r' || c == '\n') {
+			append("\n");
+			inputLine.append('\n');
+			inputCallback.onCallback(inputLine.toString());
+			inputLine.setLength(0);
+		} else if(c == '\b') {
+			if(inputLine.length() > 0) {
+				inputLine.setLength(inputLine.length() - 1);
+				
+				// Only remove the echo if no output has been appended after it.
+				if(echoEnd == text.getCharCount()) {
+					text.replaceTextRange(echoEnd - 1, 1, "");
+					echoEnd--;
+				}
+			}
+		} else if(c >= ' ' || c == '\t') {
+			inputLine.append(c);
+			text.append(String.valueOf(c));
+			text.setTopIndex(text.getLineCount() - 1);
+			echoEnd = text.getCharCount();
+		}
+	}
+	
+	/**
+	 * Sends any partly typed line, then ends the input.
+	 */
+	private void endInput() {
+		if(inputLine.length() > 0) {
+			inputCallback.onCallback(inputLine.toString());
+			inputLine.setLength(0);
+		}
+		inputCallback.onCallback(null);
+	}
+	
 	public void selectAll() {
 		text.setSelection(0, text.getText().length());
 	}
@@ -62,6 +118,9 @@ public class ConsoleText {
 		styles.add(new StyleRange());
 		
 		lastStyle = new AnsiStyle();
+		
+		inputLine.setLength(0);
+		echoEnd = -1;
 	}
 	
 	/**
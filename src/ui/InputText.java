@@ -1,19 +1,35 @@
 package ui;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.custom.StyledText;
 import org.eclipse.swt.events.*;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
 
 import com.google.common.eventbus.EventBus;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import event.EnabledChangedEvent;
+import util.FileUtil;
 
 public class InputText {
+	private static final int PREVIEW_LINES = 20;
+	private static final int PREVIEW_BYTES = 4096;
+	
+	private static ExecutorService lineCountExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setDaemon(true).build());
+	
 	private final StyledText text;
 	private final EditFunctions editFunctions;
 	
+	private File inputFile = null;
+	private String savedText = "";
+	
 	public InputText(final EventBus eventBus, Composite parent) {
 		text = new StyledText(parent, SWT.WRAP | SWT.V_SCROLL);
 		text.setMargins(2, 2, 2, 2);
@@ -43,8 +59,76 @@ public class InputText {
 		});
 	}
 	
+	public void setModifiedCallback(final Callback<Void> callback) {
+		text.addModifyListener(new ModifyListener() {
+			public void modifyText(ModifyEvent event) {
+				callback.onCallback(null);
+			}
+		});
+	}
+	
+	/**
+	 * Returns the input text, or an empty string if an input file is being used instead.
+	 */
 	public String getText() {
-		return editFunctions.getText();
+		return (inputFile == null) ? editFunctions.getText() : "";
+	}
+	
+	/**
+	 * Uses a file as the input instead of the text, showing the size, line count and start of the
+	 * file in its place without loading the whole file. Null switches back to the text.
+	 */
+	public void setInputFile(final File file) throws IOException {
+		if(file == null) {
+			if(inputFile != null) {
+				inputFile = null;
+				text.setEditable(true);
+				editFunctions.setText(savedText);
+			}
+			return;
+		}
+		
+		final String head = FileUtil.readHead(file, PREVIEW_LINES, PREVIEW_BYTES);
+		
+		if(inputFile == null) {
+			savedText = editFunctions.getText();
+		}
+		inputFile = file;
+		
+		text.setEditable(false);
+		showInputFile(file, -1, head);
+		
+		// Count the lines in the background since the file may be large.
+		lineCountExecutor.submit(new Runnable() {
+			public void run() {
+				try {
+					final long lines = FileUtil.countLines(file);
+					Display.getDefault().asyncExec(new Runnable() {
+						public void run() {
+							if(!text.isDisposed() && file.equals(inputFile)) {
+								showInputFile(file, lines, head);
+							}
+						}
+					});
+				} catch(IOException e) {
+					e.printStackTrace();
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Returns the file used as the input, or null if the text is used.
+	 */
+	public File getInputFile() {
+		return inputFile;
+	}
+	
+	private void showInputFile(File file, long lines, String head) {
+		editFunctions.setText("Input file: " + file.getPath() + "\n"
+			+ FileUtil.formatSize(file.length()) + ", " + ((lines < 0) ? "counting lines..." : lines + " lines") + "\n"
+			+ "\n"
+			+ head);
 	}
 	
 	public void setText(String text) {
@@ -1,7 +1,6 @@
 package ui;
 
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.TreeSet;
 
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.*;
@@ -16,19 +15,14 @@ public class LanguageCombo {
 	private final Combo combo;
 	private final MainController mainController;
 
-	private final Map<String, Language> languageMap = new TreeMap<>();
-	
 	public LanguageCombo(Composite parent, MainController mainController, CommandList commandList) {
 		this.combo = new Combo(parent, SWT.READ_ONLY);
 		this.mainController = mainController;
 		
-		for(Language language:Languages.getLanguages()) {
-			languageMap.put(language.getName(), language);
-		}
-		
-		for(String name:languageMap.keySet()) {
+		// Languages are created when they are selected, so only their names are needed here.
+		for(String name:new TreeSet<>(Languages.getLanguageNames())) {
 			combo.add(name);
-			commandList.addCommand("Set language: " + name, () -> mainController.setLanguage(languageMap.get(name)));
+			commandList.addCommand("Set language: " + name, () -> mainController.setLanguage(Languages.getLanguage(name)));
 		}
 		
 		combo.addSelectionListener(new SelectionAdapter() {
@@ -45,7 +39,7 @@ public class LanguageCombo {
 		int index = combo.getSelectionIndex();
 		if(index >= 0) {
 			String selected = combo.getItem(index);
-			Language language = languageMap.get(selected);
+			Language language = Languages.getLanguage(selected);
 			
 			mainController.setLanguage(language);
 		}
@@ -2,6 +2,7 @@ package ui;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -32,6 +33,7 @@ import org.eclipse.swt.widgets.Shell;
 import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
 
+import batch.BatchRunner;
 import controller.MainController;
 import event.EnabledChangedEvent;
 import event.LanguageChangedEvent;
@@ -126,6 +128,31 @@ public class Main {
 			})
 			.setAccelerator(SWT.CONTROL | SWT.SHIFT | 's')
 			.addSeparator()
+			.addItem("Set &Input File...").addSelectionListener(() -> {
+				try {
+					openInputFile();
+				} catch(Exception e) {
+					displayException(e);
+				}
+			})
+			.addItem("Clear Input File").addSelectionListener(() -> {
+				try {
+					mainController.setInputFile(null);
+				} catch(Exception e) {
+					displayException(e);
+				}
+			})
+			.setEnabled(mainController.getInputFile() != null)
+			.addSeparator()
+			.addItem("Export &Benchmark Samples...").addSelectionListener(() -> {
+				try {
+					exportBenchmark();
+				} catch(Exception e) {
+					displayException(e);
+				}
+			})
+			.setEnabled(mainController.getBenchmarkExportEnabled())
+			.addSeparator()
 			.addItem("Run Command...\tCtrl+3").addSelectionListener(() -> {
 				try {
 					runCommand();
@@ -228,7 +255,23 @@ public class Main {
 				setInputPaneVisible(false);
 			})
 			.setAccelerator(SWT.CTRL | 'i')
-			.setEnabled(inputVisible);
+			.setEnabled(inputVisible)
+			.addItem("Enable &Live Run").addSelectionListener(() -> {
+				setLiveRun(true);
+			})
+			.setEnabled(!mainController.getLiveRun())
+			.addItem("Disable &Live Run").addSelectionListener(() -> {
+				setLiveRun(false);
+			})
+			.setEnabled(mainController.getLiveRun())
+			.addItem("Enable I&nteractive Runs").addSelectionListener(() -> {
+				setInteractive(true);
+			})
+			.setEnabled(!mainController.getInteractive())
+			.addItem("Disable I&nteractive Runs").addSelectionListener(() -> {
+				setInteractive(false);
+			})
+			.setEnabled(mainController.getInteractive());
 		
 		menuBuilder.build();
 	}
@@ -255,6 +298,31 @@ public class Main {
 		}
 	}
 	
+	private void openInputFile() throws IOException {
+		FileDialog dialog = new FileDialog(shell, SWT.OPEN);
+		dialog.setText("Input File");
+		
+		String selected = dialog.open();
+		
+		if(selected != null) {
+			mainController.setInputFile(selected);
+			setInputPaneVisible(true);
+		}
+	}
+	
+	private void exportBenchmark() throws IOException {
+		FileDialog dialog = new FileDialog(shell, SWT.SAVE);
+		dialog.setText("Export Benchmark Samples");
+		dialog.setFilterExtensions(new String[] { "*.csv", "*.json" });
+		dialog.setFileName("benchmark.csv");
+		
+		String selected = dialog.open();
+		
+		if(selected != null) {
+			mainController.exportBenchmark(selected);
+		}
+	}
+	
 	private void saveAs() throws IOException {
 		FileDialog dialog = new FileDialog(shell, SWT.SAVE);
 		dialog.setText("Save");
@@ -278,12 +346,32 @@ public class Main {
 		eventBus.post(new EnabledChangedEvent());
 	}
 	
+	private void setLiveRun(boolean liveRun) {
+		mainController.setLiveRun(liveRun);
+		eventBus.post(new EnabledChangedEvent());
+	}
+	
+	private void setInteractive(boolean interactive) {
+		mainController.setInteractive(interactive);
+		eventBus.post(new EnabledChangedEvent());
+	}
+	
 	private void createToolBar(Composite parent) {
 		parent.setLayout(new FillLayout());
 		parent.setLayoutData(new GridData(GridData.GRAB_HORIZONTAL));
 		
 		addToolbarButton(parent, "Compile/Run", () -> mainController.compile());
 		
+		addToolbarButton(parent, "Run Tests", () -> {
+			try {
+				mainController.runTests();
+			} catch(Exception e) {
+				displayException(e);
+			}
+		});
+		
+		addToolbarButton(parent, "Benchmark", () -> mainController.runBenchmark());
+		
 		Button stopButton = addToolbarButton(parent, "Stop", () -> mainController.stop());
 		mainController.setRunningChangedCallback(running -> stopButton.setEnabled(running));
 		
@@ -383,6 +471,12 @@ public class Main {
 	}
 	
 	public static void main(String[] args) {
+		// Run snippets without creating a display.
+		if(args.length > 0 && args[0].equals("--batch")) {
+			BatchRunner.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		
 		System.setProperty("line.separator", "\n");
 
 		Display display = new Display();
@@ -417,6 +511,8 @@ public class Main {
 		options.addOption(new Option("l", "language", true, "set the language by name"));
 		options.addOption(new Option("f", "file", true, "load a file"));
 		options.addOption(new Option("i", "input", false, "show input pane"));
+		options.addOption(new Option("if", "input-file", true, "use a file as the program input"));
+		options.addOption(new Option("r", "live", false, "rerun the program automatically after each edit"));
 		options.addOption(new Option("j", "jardir", true, "adds the jars in a directory to the classpath"));
 		options.addOption(new Option("cp", "classpath", true, "sets the classpath to use when compiling/running java programs"));
 		options.addOption(new Option("h", "help", false, "show help"));
@@ -426,6 +522,7 @@ public class Main {
 		
 			if(command.hasOption("h") || command.getArgs().length > 1) {
 				new HelpFormatter().printHelp("java -jar scratchpad.jar [options] [filename]", options);
+				System.out.println("Run java -jar scratchpad.jar --batch --help to run snippets without the editor.");
 				System.exit(0);
 			}
 			
@@ -438,6 +535,15 @@ public class Main {
 				setInputPaneVisible(true);
 			}
 			
+			if(command.hasOption("if")) {
+				mainController.setInputFile(command.getOptionValue("if"));
+				setInputPaneVisible(true);
+			}
+			
+			if(command.hasOption("r")) {
+				setLiveRun(true);
+			}
+			
 			if(command.hasOption("j")) {
 				mainController.setJarDir(command.getOptionValue("j"));
 			}
@@ -0,0 +1,82 @@
+package util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+public class FileUtil {
+	private static final int BUFFER_SIZE = 65536;
+	
+	/**
+	 * Returns the number of lines in a file, counting a last line without a newline,
+	 * without reading the whole file into memory.
+	 */
+	public static long countLines(File file) throws IOException {
+		long lines = 0;
+		byte last = '\n';
+		
+		try(InputStream inputStream = new FileInputStream(file)) {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int read;
+			while((read = inputStream.read(buffer)) != -1) {
+				for(int i = 0; i < read; i++) {
+					if(buffer[i] == '\n') {
+						lines++;
+					}
+				}
+				if(read > 0) {
+					last = buffer[read - 1];
+				}
+			}
+		}
+		
+		return (last == '\n') ? lines : lines + 1;
+	}
+	
+	/**
+	 * Returns up to maxLines lines from the start of a file, reading at most maxBytes bytes.
+	 */
+	public static String readHead(File file, int maxLines, int maxBytes) throws IOException {
+		byte[] buffer = new byte[maxBytes];
+		int length = 0;
+		
+		try(InputStream inputStream = new FileInputStream(file)) {
+			int read;
+			while(length < maxBytes && (read = inputStream.read(buffer, length, maxBytes - length)) != -1) {
+				length += read;
+			}
+		}
+		
+		String head = new String(Arrays.copyOf(buffer, length), StandardCharsets.UTF_8);
+		
+		int end = -1;
+		for(int x = 0; x < maxLines; x++) {
+			int newline = head.indexOf('\n', end + 1);
+			if(newline == -1) {
+				return head;
+			}
+			end = newline;
+		}
+		return head.substring(0, end + 1);
+	}
+	
+	/**
+	 * Returns a size in bytes in a readable form such as '1.5 MB'.
+	 */
+	public static String formatSize(long bytes) {
+		String[] units = { "bytes", "KB", "MB", "GB", "TB" };
+		
+		double size = bytes;
+		int unit = 0;
+		while(size >= 1024 && unit < units.length - 1) {
+			size /= 1024;
+			unit++;
+		}
+		
+		return (unit == 0) ? bytes + " bytes" : String.format(Locale.ROOT, "%.1f %s", size, units[unit]);
+	}
+}
@@ -9,7 +9,15 @@ public class StringUtil {
 	 * if there is no match.
 	 */
 	public static String match(String s, String pattern) {
-		Matcher matcher = Pattern.compile(pattern).matcher(s);
+		return match(s, Pattern.compile(pattern));
+	}
+	
+	/**
+	 * Returns the first match in s for a compiled pattern, or null
+	 * if there is no match.
+	 */
+	public static String match(String s, Pattern pattern) {
+		Matcher matcher = pattern.matcher(s);
 		if(matcher.find()) {
 			if(matcher.groupCount() > 0) {
 				return matcher.group(1);
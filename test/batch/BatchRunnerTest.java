@@ -0,0 +1,28 @@
+package batch;
+
+import static org.junit.Assert.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class BatchRunnerTest {
+	@Test
+	public void quote() {
+		assertEquals("\"a\\\"b\\\\c\\u000a\"", BatchRunner.quote("a\"b\\c\n"));
+	}
+
+	@Test
+	public void toJson() {
+		Map<String, Object> phases = new LinkedHashMap<>();
+		phases.put("compile", 12L);
+
+		Map<String, Object> fields = new LinkedHashMap<>();
+		fields.put("file", "a.py");
+		fields.put("exitValue", null);
+		fields.put("phases", phases);
+
+		assertEquals("{\"file\": \"a.py\", \"exitValue\": null, \"phases\": {\"compile\": 12}}", BatchRunner.toJson(fields));
+	}
+}
@@ -0,0 +1,95 @@
+package compiler;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class BoundedAppenderTest {
+	private static class StringAppender implements Appender {
+		private final StringBuilder text = new StringBuilder();
+
+		public void append(String s) {
+			text.append(s);
+		}
+
+		public void close() {
+		}
+	}
+
+	private final StringAppender out = new StringAppender();
+	private final AtomicInteger limitCount = new AtomicInteger();
+
+	@Test
+	public void underLimit() {
+		BoundedAppender appender = create(100, 100, OutputLimit.Policy.HEAD_TAIL);
+		appender.append("hello\n");
+		appender.finish();
+
+		assertEquals("hello\n", out.text.toString());
+		assertFalse(appender.isLimitReached());
+		assertEquals(0, limitCount.get());
+	}
+
+	@Test
+	public void head() {
+		BoundedAppender appender = create(5, 100, OutputLimit.Policy.HEAD);
+		appender.append("abc");
+		appender.append("defgh");
+		assertEquals("abcde", out.text.toString());
+
+		appender.finish();
+		assertEquals("abcde\n[3 characters elided]\n", out.text.toString());
+		assertEquals(8, appender.getTotalChars());
+		assertEquals(5, appender.getRetainedChars());
+		assertEquals(3, appender.getDroppedChars());
+		assertEquals(1, limitCount.get());
+	}
+
+	@Test
+	public void headLines() {
+		BoundedAppender appender = create(100, 2, OutputLimit.Policy.HEAD);
+		appender.append("1\n2\n3\n4\n");
+
+		assertEquals("1\n2\n", out.text.toString());
+		assertTrue(appender.isLimitReached());
+	}
+
+	@Test
+	public void tail() {
+		BoundedAppender appender = create(4, 100, OutputLimit.Policy.TAIL);
+		for(int i = 0; i < 1000; i++) {
+			appender.append(String.valueOf(i % 10));
+		}
+		assertEquals("", out.text.toString());
+
+		appender.finish();
+		assertEquals("\n[996 characters elided]\n6789", out.text.toString());
+		assertEquals(1, limitCount.get());
+	}
+
+	@Test
+	public void headTail() {
+		BoundedAppender appender = create(100, 4, OutputLimit.Policy.HEAD_TAIL);
+		for(int i = 1; i <= 10; i++) {
+			appender.append(i + "\n");
+		}
+		appender.finish();
+
+		assertEquals("1\n2\n\n[12 characters elided]\n9\n10\n", out.text.toString());
+	}
+
+	@Test
+	public void ignoredAfterFinish() {
+		BoundedAppender appender = create(100, 100, OutputLimit.Policy.HEAD);
+		appender.finish();
+		appender.append("late");
+
+		assertEquals("", out.text.toString());
+	}
+
+	private BoundedAppender create(long maxChars, long maxLines, OutputLimit.Policy policy) {
+		return new BoundedAppender(out, new OutputLimit(maxChars, maxLines, policy, false), () -> limitCount.incrementAndGet());
+	}
+}
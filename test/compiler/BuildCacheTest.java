@@ -0,0 +1,74 @@
+package compiler;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BuildCacheTest {
+	private File cacheDir;
+	private File dir;
+
+	@Before
+	public void before() throws Exception {
+		cacheDir = Files.createTempDirectory("cache").toFile();
+		dir = Files.createTempDirectory("dir").toFile();
+	}
+
+	@After
+	public void after() throws Exception {
+		FileUtils.deleteDirectory(cacheDir);
+		FileUtils.deleteDirectory(dir);
+	}
+
+	@Test
+	public void miss() {
+		BuildCache cache = new BuildCache(cacheDir, 1000);
+		assertFalse(cache.restore(BuildCache.getKey(Arrays.asList("a")), dir));
+	}
+
+	@Test
+	public void storeOnlyNewFiles() throws Exception {
+		BuildCache cache = new BuildCache(cacheDir, 1000);
+		String key = BuildCache.getKey(Arrays.asList("a"));
+
+		FileUtils.write(new File(dir, "Main.c"), "source");
+		BuildCache.Snapshot snapshot = cache.snapshot(dir);
+		FileUtils.write(new File(dir, "out/main"), "binary");
+		cache.store(key, dir, snapshot);
+
+		File restoreDir = new File(dir, "restore");
+		assertTrue(cache.restore(key, restoreDir));
+		assertEquals("binary", FileUtils.readFileToString(new File(restoreDir, "out/main")));
+		assertFalse(new File(restoreDir, "Main.c").exists());
+	}
+
+	@Test
+	public void evictLeastRecentlyUsed() throws Exception {
+		BuildCache cache = new BuildCache(cacheDir, 16);
+		String key1 = BuildCache.getKey(Arrays.asList("1"));
+		String key2 = BuildCache.getKey(Arrays.asList("2"));
+		String key3 = BuildCache.getKey(Arrays.asList("3"));
+
+		storeFile(cache, key1, "1.o");
+		storeFile(cache, key2, "2.o");
+		new File(cacheDir, key1).setLastModified(System.currentTimeMillis() + 10000);
+		storeFile(cache, key3, "3.o");
+
+		assertTrue(new File(cacheDir, key1).exists());
+		assertFalse(new File(cacheDir, key2).exists());
+		assertTrue(new File(cacheDir, key3).exists());
+	}
+
+	private void storeFile(BuildCache cache, String key, String name) throws Exception {
+		BuildCache.Snapshot snapshot = cache.snapshot(dir);
+		FileUtils.write(new File(dir, name), "12345678");
+		cache.store(key, dir, snapshot);
+	}
+}
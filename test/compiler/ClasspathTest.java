@@ -0,0 +1,49 @@
+package compiler;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class ClasspathTest {
+	@Test
+	public void expandWildcards() throws Exception {
+		File dir = Files.createTempDirectory("scratchpad").toFile();
+		try {
+			File lib = new File(dir, "lib");
+			lib.mkdir();
+			new File(lib, "b.jar").createNewFile();
+			new File(lib, "a.jar").createNewFile();
+			new File(lib, "notes.txt").createNewFile();
+
+			assertEquals(Arrays.asList(new File(dir, "."), new File(lib, "a.jar"), new File(lib, "b.jar")), Classpath.resolve(dir, ".:lib/*:missing/*:missing"));
+		} finally {
+			Workspace.delete(dir);
+		}
+	}
+
+	@Test
+	public void findJarsAddedAfterExpanding() throws Exception {
+		File dir = Files.createTempDirectory("scratchpad").toFile();
+		try {
+			File lib = new File(dir, "lib");
+			String classpath = lib.getAbsolutePath() + "/*:" + new File(lib, "dep.jar").getAbsolutePath();
+
+			assertEquals(Arrays.asList(), Classpath.resolve(dir, classpath));
+
+			lib.mkdir();
+			new File(lib, "a.jar").createNewFile();
+			lib.setLastModified(lib.lastModified() + 2000);
+			assertEquals(Arrays.asList(new File(lib, "a.jar")), Classpath.resolve(dir, classpath));
+
+			new File(lib, "dep.jar").createNewFile();
+			lib.setLastModified(lib.lastModified() + 2000);
+			assertEquals(Arrays.asList(new File(lib, "a.jar"), new File(lib, "dep.jar"), new File(lib, "dep.jar")), Classpath.resolve(dir, classpath));
+		} finally {
+			Workspace.delete(dir);
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package compiler;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class CommandTemplateTest {
+	private final Map<CommandTemplate.Variable, String> values = new EnumMap<>(CommandTemplate.Variable.class);
+	
+	{
+		values.put(CommandTemplate.Variable.NAME, "Main");
+		values.put(CommandTemplate.Variable.EXT, "java");
+		values.put(CommandTemplate.Variable.CLASSPATH, ".:lib/*");
+		values.put(CommandTemplate.Variable.JOBS, "4");
+	}
+
+	@Test
+	public void variables() {
+		assertEquals(Arrays.asList("javac", "-cp", ".:lib/*", "Main.java"), CommandTemplate.parse("javac  -cp $CLASSPATH\t$NAME.$EXT").render(values));
+		assertEquals(Arrays.asList("make", "-j4", "$HOME", "Main_test"), CommandTemplate.parse("make -j$JOBS $HOME $NAME_test").render(values));
+	}
+
+	@Test
+	public void valuesAreNotPatterns() {
+		values.put(CommandTemplate.Variable.CLASSPATH, "C:\\lib\\$1");
+		assertEquals(Arrays.asList("-cp", "C:\\lib\\$1:x"), CommandTemplate.parse("-cp $CLASSPATH:x").render(values));
+	}
+
+	@Test
+	public void missingValues() {
+		assertEquals(Arrays.asList("cd", "$WORKDIR/out"), CommandTemplate.parse("cd $WORKDIR/out").render(values));
+	}
+
+	@Test
+	public void quotes() {
+		assertEquals(Arrays.asList("a b", "Main.java", "$NAME c", ""), CommandTemplate.parse("\"a b\" \"$NAME.$EXT\" '$NAME c' ''").render(values));
+		assertEquals(Arrays.asList("say \"$hi\"\\"), CommandTemplate.parse("\"say \\\"\\$hi\\\"\\\\\"").render(values));
+		assertEquals(Arrays.asList("-c", "print('a b')"), CommandTemplate.parse("-c \"print('a b')\"").render(values));
+
+		// Quotes after the start of an argument are kept.
+		assertEquals(Arrays.asList("-c", "sys=__import__('sys')"), CommandTemplate.parse("-c sys=__import__('sys')").render(values));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unterminatedQuote() {
+		CommandTemplate.parse("echo \"a b");
+	}
+}
@@ -0,0 +1,41 @@
+package compiler;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class CommentSyntaxTest {
+	private final CommentSyntax java = new CommentSyntax("//", "/*", "*/");
+	private final CommentSyntax python = new CommentSyntax("#", null, null);
+
+	@Test
+	public void removeComments() {
+		assertEquals("int x = 1;\nint y = 2;", java.normalize("/* header */\nint x = 1; // one\n\n  \nint y = 2;   \n"));
+		assertEquals("a b", java.normalize("a/* c */b"));
+		assertEquals("x = 1", python.normalize("# comment\nx = 1 # one\n"));
+	}
+
+	@Test
+	public void keepStrings() {
+		assertEquals("s = \"http://a\";", java.normalize("s = \"http://a\";"));
+		assertFalse(java.normalize("s = \"http://a\";").equals(java.normalize("s = \"http://b\";")));
+		assertEquals("s = \"a\\\"//b\";", java.normalize("s = \"a\\\"//b\"; // c"));
+		assertEquals("s = '''a  \n\n  b'''", python.normalize("s = '''a  \n\n  b'''\n"));
+	}
+
+	@Test
+	public void keepIndentation() {
+		assertFalse(python.normalize("if x:\n  y()\nz()").equals(python.normalize("if x:\n  y()\n  z()")));
+	}
+
+	@Test
+	public void keepDirectives() {
+		assertEquals("// DEP: junit junit 4.12\nclass A {}", java.normalize("// DEP: junit junit 4.12\n// A class\nclass A {}"));
+		assertEquals("# LIMIT: cpu=1\nx = 1", python.normalize("# LIMIT: cpu=1\nx = 1"));
+	}
+
+	@Test
+	public void noCommentSyntax() {
+		assertEquals("a // b", CommentSyntax.NONE.normalize("a // b  \n\n"));
+	}
+}
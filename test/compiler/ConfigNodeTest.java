@@ -0,0 +1,55 @@
+package compiler;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.StringReader;
+
+import org.jdom2.input.SAXBuilder;
+import org.junit.Test;
+
+public class ConfigNodeTest {
+	private static final String XML = "<languages liveRunDelay=\"500\">\n" +
+		"\t<language name=\"Test\" extension=\"t\">\n" +
+		"\t\t<compiler>first</compiler>\n" +
+		"\t\t<compiler>second</compiler>\n" +
+		"\t\t<template><![CDATA[\n  line \u00e9\n]]></template>\n" +
+		"\t</language>\n" +
+		"</languages>";
+	
+	@Test
+	public void fromElement() throws Exception {
+		ConfigNode root = ConfigNode.fromElement(new SAXBuilder().build(new StringReader(XML)).getRootElement());
+		
+		assertEquals("500", root.getAttribute("liveRunDelay"));
+		assertNull(root.getAttribute("missing"));
+		
+		ConfigNode language = root.getChild("language");
+		assertEquals("Test", language.getAttribute("name"));
+		assertEquals(2, language.getChildren("compiler").size());
+		assertEquals("second", language.getChildren("compiler").get(1).getText());
+		assertEquals("line \u00e9", language.getChild("template").getText());
+		assertNull(language.getChild("run"));
+	}
+	
+	@Test
+	public void writeAndRead() throws Exception {
+		ConfigNode root = ConfigNode.fromElement(new SAXBuilder().build(new StringReader(XML)).getRootElement());
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try(DataOutputStream output = new DataOutputStream(bytes)) {
+			root.write(output);
+		}
+		ConfigNode read = ConfigNode.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		
+		assertEquals("languages", read.getName());
+		assertEquals("500", read.getAttribute("liveRunDelay"));
+		ConfigNode language = read.getChild("language");
+		assertEquals("t", language.getAttribute("extension"));
+		assertEquals("first", language.getChildren("compiler").get(0).getText());
+		assertEquals("line \u00e9", language.getChild("template").getText());
+	}
+}
@@ -0,0 +1,131 @@
+package compiler;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import compiler.DependencyResolver.Coordinate;
+
+public class DependencyResolverTest {
+	private File m2;
+	private File ivy;
+	private DependencyResolver resolver;
+
+	@Before
+	public void before() throws Exception {
+		m2 = Files.createTempDirectory("m2").toFile();
+		ivy = Files.createTempDirectory("ivy").toFile();
+		resolver = new DependencyResolver(Collections.singletonList(m2), Collections.singletonList(ivy));
+	}
+
+	@After
+	public void after() throws Exception {
+		FileUtils.deleteDirectory(m2);
+		FileUtils.deleteDirectory(ivy);
+	}
+
+	@Test
+	public void transitive() throws Exception {
+		writePom("org.a", "a", "1", "<dependencies>" + dependency("org.b", "b", "${b.version}", null) + "</dependencies><properties><b.version>2</b.version></properties>");
+		writePom("org.b", "b", "2", "<dependencies>" + dependency("org.c", "c", "3", null) + dependency("org.d", "d", "4", "test") + "</dependencies>");
+		writePom("org.c", "c", "3", "");
+
+		DependencyResolver.Result result = resolver.resolve(Arrays.asList(Coordinate.parse("org.a a 1")));
+
+		assertEquals(Arrays.asList("a-1.jar", "b-2.jar", "c-3.jar"), getNames(result.getJars()));
+		assertTrue(result.getUnresolved().isEmpty());
+	}
+
+	@Test
+	public void nearestVersionWins() throws Exception {
+		writePom("org.a", "a", "1", "<dependencies>" + dependency("org.c", "c", "1", null) + "</dependencies>");
+		writePom("org.c", "c", "1", "");
+		writePom("org.c", "c", "2", "");
+
+		DependencyResolver.Result result = resolver.resolve(Arrays.asList(Coordinate.parse("org.c c 2"), Coordinate.parse("org.a a 1")));
+
+		assertEquals(Arrays.asList("c-2.jar", "a-1.jar"), getNames(result.getJars()));
+	}
+
+	@Test
+	public void managedVersionFromParent() throws Exception {
+		writeFile(m2, "org/p/parent/1/parent-1.pom", "<project><groupId>org.p</groupId><artifactId>parent</artifactId><version>1</version><packaging>pom</packaging>"
+			+ "<dependencyManagement><dependencies>" + dependency("org.c", "c", "${project.version}", null) + "</dependencies></dependencyManagement></project>");
+		writePom("org.a", "a", "1", "<parent><groupId>org.p</groupId><artifactId>parent</artifactId><version>1</version></parent>"
+			+ "<dependencies><dependency><groupId>org.c</groupId><artifactId>c</artifactId></dependency></dependencies>");
+		writePom("org.c", "c", "1", "");
+
+		DependencyResolver.Result result = resolver.resolve(Arrays.asList(Coordinate.parse("org.a a 1")));
+
+		assertEquals(Arrays.asList("a-1.jar", "c-1.jar"), getNames(result.getJars()));
+	}
+
+	@Test
+	public void ivyCache() throws Exception {
+		writeFile(ivy, "org.i/i/ivy-1.xml", "<ivy-module version=\"2.0\"><dependencies><dependency org=\"org.c\" name=\"c\" rev=\"1\" conf=\"compile->default\"/></dependencies></ivy-module>");
+		writeFile(ivy, "org.i/i/jars/i-1.jar", "jar");
+		writePom("org.c", "c", "1", "");
+
+		DependencyResolver.Result result = resolver.resolve(Arrays.asList(Coordinate.parse("org.i i 1")));
+
+		assertEquals(Arrays.asList("i-1.jar", "c-1.jar"), getNames(result.getJars()));
+	}
+
+	@Test
+	public void unresolved() throws Exception {
+		writePom("org.a", "a", "1", "<dependencies>" + dependency("org.missing", "missing", "1", null) + "</dependencies>");
+
+		DependencyResolver.Result result = resolver.resolve(Arrays.asList(Coordinate.parse("org.a a 1"), Coordinate.parse("org.x x 1")));
+
+		assertEquals(Arrays.asList("a-1.jar"), getNames(result.getJars()));
+		assertEquals("[org.x x 1, org.missing missing 1]", result.getUnresolved().toString());
+	}
+
+	@Test
+	public void materialize() throws Exception {
+		writePom("org.a", "a", "1", "");
+		DependencyResolver.Result result = resolver.resolve(Arrays.asList(Coordinate.parse("org.a a 1")));
+
+		File dir = Files.createTempDirectory("dir").toFile();
+		try {
+			DependencyResolver.materialize(result.getJars(), dir);
+			assertEquals("jar", FileUtils.readFileToString(new File(dir, "lib/a-1.jar")));
+		} finally {
+			FileUtils.deleteDirectory(dir);
+		}
+	}
+
+	private void writePom(String group, String artifact, String version, String body) throws Exception {
+		String path = group.replace('.', '/') + "/" + artifact + "/" + version + "/" + artifact + "-" + version;
+		writeFile(m2, path + ".pom", "<project xmlns=\"http://maven.apache.org/POM/4.0.0\"><groupId>" + group + "</groupId><artifactId>" + artifact + "</artifactId>"
+			+ "<version>" + version + "</version>" + body + "</project>");
+		writeFile(m2, path + ".jar", "jar");
+	}
+
+	private static String dependency(String group, String artifact, String version, String scope) {
+		return "<dependency><groupId>" + group + "</groupId><artifactId>" + artifact + "</artifactId><version>" + version + "</version>"
+			+ ((scope == null) ? "" : "<scope>" + scope + "</scope>") + "</dependency>";
+	}
+
+	private static void writeFile(File dir, String path, String contents) throws Exception {
+		FileUtils.write(new File(dir, path), contents);
+	}
+
+	private static List<String> getNames(List<File> files) {
+		List<String> names = new ArrayList<>();
+		for(File file:files) {
+			names.add(file.getName());
+		}
+		return names;
+	}
+}
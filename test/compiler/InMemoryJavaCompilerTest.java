@@ -0,0 +1,105 @@
+package compiler;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+public class InMemoryJavaCompilerTest {
+	private File dir = new File(System.getProperty("java.io.tmpdir"));
+
+	@Test
+	public void compile() throws Exception {
+		String code = "public class Main {\n" +
+			"\tpublic static void main(String[] args) {\n" +
+			"\t}\n" +
+			"\tclass Inner {}\n" +
+			"}";
+
+		InMemoryJavaCompiler.Result result = InMemoryJavaCompiler.compile("Main.java", code, dir, ".");
+
+		assertTrue(result.isSuccess());
+		assertTrue(result.getClasses().containsKey("Main"));
+		assertTrue(result.getClasses().containsKey("Main$Inner"));
+	}
+
+	@Test
+	public void compileError() throws Exception {
+		String code = "public class Main {\n" +
+			"\tint x = \"abc\";\n" +
+			"}";
+
+		InMemoryJavaCompiler.Result result = InMemoryJavaCompiler.compile("Main.java", code, dir, ".");
+
+		assertFalse(result.isSuccess());
+		assertTrue(result.getDiagnostics().contains("incompatible types"));
+	}
+
+	@Test
+	public void compileTwice() throws Exception {
+		String code = "public class Main {}";
+
+		assertTrue(InMemoryJavaCompiler.compile("Main.java", code, dir, ".").isSuccess());
+		assertTrue(InMemoryJavaCompiler.compile("Main.java", code, dir, ".").isSuccess());
+	}
+
+	@Test
+	public void compileWithOptions() throws Exception {
+		String code = "public class Main {}";
+
+		InMemoryJavaCompiler.Result result = InMemoryJavaCompiler.compile("Main.java", code, dir, ".", Arrays.asList("--release", "8"));
+
+		assertTrue(result.isSuccess());
+		// The major version of Java 8 class files.
+		assertEquals(52, result.getClasses().get("Main")[7]);
+	}
+
+	@Test
+	public void compileWithUnknownOption() throws Exception {
+		InMemoryJavaCompiler.Result result = InMemoryJavaCompiler.compile("Main.java", "public class Main {}", dir, ".", Arrays.asList("-unknown"));
+
+		assertFalse(result.isSuccess());
+		assertTrue(result.getDiagnostics().contains("-unknown"));
+	}
+
+	@Test
+	public void compileAgainstReplacedJar() throws Exception {
+		File jarDir = Files.createTempDirectory("scratchpad-jar").toFile();
+		try {
+			File jar = new File(jarDir, "lib.jar");
+			File replacement = new File(jarDir, "replacement.jar");
+			writeJar(jar, "package lib; public class Lib { public static int first() { return 1; } }");
+			writeJar(replacement, "package lib; public class Lib { public static int other() { return 2; } }");
+
+			String code = "public class Main { int x = lib.Lib.first(); }";
+			assertTrue(InMemoryJavaCompiler.compile("Main.java", code, dir, jar.getPath()).isSuccess());
+
+			Files.copy(replacement.toPath(), jar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			jar.setLastModified(jar.lastModified() + 2000);
+			assertFalse(InMemoryJavaCompiler.compile("Main.java", code, dir, jar.getPath()).isSuccess());
+		} finally {
+			FileUtils.deleteDirectory(jarDir);
+		}
+	}
+
+	private void writeJar(File jar, String code) throws IOException {
+		Map<String, byte[]> classes = InMemoryJavaCompiler.compile("Lib.java", code, dir, ".").getClasses();
+
+		try(JarOutputStream output = new JarOutputStream(new FileOutputStream(jar))) {
+			for(Map.Entry<String, byte[]> entry:classes.entrySet()) {
+				output.putNextEntry(new JarEntry(entry.getKey().replace('.', '/') + ".class"));
+				output.write(entry.getValue());
+			}
+		}
+	}
+}
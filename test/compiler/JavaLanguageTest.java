@@ -2,6 +2,13 @@ package compiler;
 
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -68,4 +75,98 @@ public class JavaLanguageTest {
 		
 		assertEquals("Main3", javaLanguage.getFileName(code));
 	}
+	
+	@Test
+	public void ignoreCommentsAndStrings() {
+		String code = "// public class Main2 { public static void main(String[] args) {} }\n" +
+			"/* public class Main3 { public static void main(String[] args) {} } */\n" +
+			"public class Main4 {\n" +
+			"\tString s = \"public class Main5 { public static void main(\";\n" +
+			"\tchar c = '{';\n" +
+			"\tpublic static void main(String[] args) {\n" +
+			"\t}\n" +
+			"}";
+		
+		assertEquals("Main4", javaLanguage.getFileName(code));
+	}
+	
+	@Test
+	public void nestedClasses() {
+		String code = "public class Main2 {\n" +
+			"\tstatic class Inner {\n" +
+			"\t\tvoid run() {}\n" +
+			"\t}\n" +
+			"\t@SuppressWarnings({\"unchecked\"})\n" +
+			"\tstatic public void main(String[] args) {\n" +
+			"\t\tnew Inner().run();\n" +
+			"\t}\n" +
+			"}";
+		
+		assertEquals("Main2", javaLanguage.getFileName(code));
+	}
+	
+	@Test
+	public void mainInNestedClass() {
+		String code = "public class Main2 {\n" +
+			"\tstatic class Inner {\n" +
+			"\t\tpublic static void main(String[] args) {}\n" +
+			"\t}\n" +
+			"}";
+		
+		assertEquals("Main", javaLanguage.getFileName(code));
+	}
+	
+	@Test
+	public void largeSource() {
+		StringBuilder code = new StringBuilder("public class Main2 {\n");
+		for(int i = 0; i < 100000; i++) {
+			code.append("\tint method" + i + "() { return " + i + "; }\n");
+		}
+		code.append("\tpublic static void main(String[] args) {}\n}\n");
+		
+		assertEquals("Main2", javaLanguage.getFileName(code.toString()));
+	}
+	
+	@Test
+	public void dependencies() {
+		String code = "// DEP: org.jsoup jsoup 1.8.3\n" +
+			"//DEP: com.google.guava guava 14.0  \n" +
+			"public class Main {\n" +
+			"\tString s = \"// DEP: not a dependency\";\n" +
+			"}";
+		
+		assertEquals(Arrays.asList("org.jsoup jsoup 1.8.3", "com.google.guava guava 14.0"), javaLanguage.getDependencies(code));
+		assertEquals(Arrays.asList("org.jsoup jsoup 1.8.3"), javaLanguage.getDependencies("// DEP: org.jsoup jsoup 1.8.3"));
+	}
+	
+	@Test
+	public void dependenciesWithoutCommentSyntax() {
+		Language language = new Language("Plain", "txt", "BrushPlain", new ArrayList<String>(), null, null, "", null, null, null, "true", ".",
+			null, null, null, null, new ResourceLimits(0, 0, 0, 0), CommentSyntax.NONE, null);
+		
+		String code = "// DEP: org.jsoup jsoup 1.8.3\n" +
+			"x = 1 // DEP: com.google.guava guava 14.0\r\n";
+		
+		assertEquals(Arrays.asList("org.jsoup jsoup 1.8.3", "com.google.guava guava 14.0"), language.getDependencies(code));
+	}
+	
+	@Test
+	public void inMemoryCompileUsesCompilerOptions() throws Exception {
+		Language language = new Language("Java", "java", "BrushJava", Arrays.asList("javac -parameters -cp $CLASSPATH $NAME.$EXT"), "java -cp $CLASSPATH $NAME",
+			"mainType", "", null, null, null, null, ".", "inMemory", null, null, null, new ResourceLimits(0, 0, 0, 0), CommentSyntax.NONE, null);
+		
+		File dir = Files.createTempDirectory("scratchpad").toFile();
+		try {
+			String code = "public class Main { public static void main(String[] args) {} }";
+			for(Callable<Process> step:language.createCompileSteps(dir, "Main", code, ".")) {
+				assertEquals(0, step.call().waitFor());
+			}
+			
+			// Only written with -parameters.
+			String classFile = new String(Files.readAllBytes(new File(dir, "Main.class").toPath()), StandardCharsets.ISO_8859_1);
+			assertTrue(classFile.contains("MethodParameters"));
+		} finally {
+			Workspace.delete(dir);
+		}
+	}
 }
@@ -0,0 +1,58 @@
+package compiler;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class JmhHarnessTest {
+	@Test
+	public void findBenchmarks() {
+		String code = "@State(Scope.Thread)\n" +
+			"@BenchmarkMode(Mode.AverageTime)\n" +
+			"public class Bench {\n" +
+			"\t@Benchmark\n" +
+			"\tpublic long sum() { return 0; }\n" +
+			"\n" +
+			"\t@Benchmark @OutputTimeUnit(TimeUnit.NANOSECONDS)\n" +
+			"\tpublic void consume(Blackhole blackhole) {}\n" +
+			"\n" +
+			"\t@org.openjdk.jmh.annotations.Benchmark\n" +
+			"\tpublic List<int[]> lists() { return null; }\n" +
+			"\n" +
+			"\t// @Benchmark\n" +
+			"\tpublic void commented() {}\n" +
+			"\n" +
+			"\t@Setup\n" +
+			"\tpublic void setup() {}\n" +
+			"}";
+		
+		assertEquals(Arrays.asList("sum", "consume", "lists"), JmhHarness.findBenchmarks(code));
+	}
+	
+	@Test
+	public void noBenchmarks() {
+		assertEquals(Collections.emptyList(), JmhHarness.findBenchmarks("public class Main {\n\t@BenchmarkMode(Mode.Throughput)\n\tpublic void run() {}\n}"));
+	}
+	
+	@Test
+	public void arguments() {
+		JmhHarness harness = new JmhHarness(1, -1, 5, -1, 2, Arrays.asList("gc"));
+		
+		assertEquals(Arrays.asList("^(.+\\.)?Bench\\.(sum|consume)$", "-f", "1", "-i", "5", "-r", "2s", "-prof", "gc"), harness.getArguments("Bench", Arrays.asList("sum", "consume")));
+	}
+	
+	@Test
+	public void templateHasBenchmarks() {
+		for(Language language:Languages.getLanguages()) {
+			if(language.getName().equals("Java (JMH)")) {
+				assertEquals("Main", language.getFileName(language.getTemplate()));
+				assertEquals(Arrays.asList("sum", "sumStream"), JmhHarness.findBenchmarks(language.getTemplate()));
+				return;
+			}
+		}
+		fail("Java (JMH) language not found");
+	}
+}
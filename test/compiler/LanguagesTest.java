@@ -0,0 +1,32 @@
+package compiler;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class LanguagesTest {
+	@Test
+	public void findLanguage() {
+		assertEquals("Python", Languages.getLanguageForExtension("py").getName());
+		assertEquals("Python", Languages.getLanguage("python").getName());
+		assertNull(Languages.getLanguageForExtension("unknown"));
+		assertNull(Languages.getLanguage("unknown"));
+	}
+	
+	@Test
+	public void firstLanguageForExtension() {
+		assertEquals("Java", Languages.getLanguageForExtension("java").getName());
+	}
+	
+	@Test
+	public void sameLanguageEachTime() {
+		assertSame(Languages.getLanguage("Java"), Languages.getLanguage("JAVA"));
+		assertTrue(Languages.getLanguages().contains(Languages.getLanguage("Java")));
+	}
+	
+	@Test
+	public void languageNames() {
+		assertEquals(Languages.getLanguages().size(), Languages.getLanguageNames().size());
+		assertEquals("Java", Languages.getLanguageNames().get(0));
+	}
+}
@@ -0,0 +1,31 @@
+package compiler;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class ProcessTreeTest {
+	@Test
+	public void killDescendantsOfExitedProcess() throws Exception {
+		// The subshell is orphaned when the script exits, and only then starts the sleep.
+		Process process = new ProcessBuilder("sh", "-c", "(sleep 0.5; exec sleep 30) & sleep 0.2").start();
+		ProcessTree tree = new ProcessTree(process);
+
+		// The subshell is seen while the script is running.
+		Thread.sleep(100);
+		assertTrue(tree.getRunning().size() > 1);
+
+		assertTrue(process.waitFor(5, TimeUnit.SECONDS));
+		Thread.sleep(600);
+
+		List<ProcessHandle> running = tree.getRunning();
+		assertEquals(1, running.size());
+		assertTrue(running.get(0).info().commandLine().orElse("").contains("sleep 30"));
+
+		tree.destroy(5000);
+		assertFalse(running.get(0).isAlive());
+	}
+}
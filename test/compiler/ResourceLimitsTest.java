@@ -0,0 +1,38 @@
+package compiler;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class ResourceLimitsTest {
+	private final ResourceLimits limits = new ResourceLimits(10, 5, 256, 64);
+
+	@Test
+	public void cpuViolation() {
+		assertEquals("CPU time limit of 5s exceeded, process killed", limits.getViolation(152, 5000, ""));
+		assertEquals("CPU time limit of 5s exceeded, process killed", limits.getViolation(137, 6000, ""));
+		assertNull(limits.getViolation(137, 100, ""));
+	}
+
+	@Test
+	public void memoryViolation() {
+		assertEquals("Memory limit of 256MB exceeded, allocation failed", limits.getViolation(1, -1, "Traceback (most recent call last):\nMemoryError\n"));
+		assertEquals("Memory limit of 256MB exceeded, allocation failed", limits.getViolation(134, -1, "terminate called after throwing an instance of 'std::bad_alloc'\n"));
+		assertNull(new ResourceLimits(10, 5, 0, 64).getViolation(1, -1, "MemoryError\n"));
+	}
+
+	@Test
+	public void openFilesViolation() {
+		assertEquals("Open files limit of 64 exceeded, open failed", limits.getViolation(1, -1, "OSError: [Errno 24] Too many open files: 'a'\n"));
+		assertNull(limits.getViolation(0, -1, "Too many open files\n"));
+	}
+
+	@Test
+	public void directives() {
+		ResourceLimits overridden = limits.withDirectives("# LIMIT: cpu=1 files=8\nprint(1)");
+		assertEquals(10, overridden.getWallTime());
+		assertEquals(1, overridden.getCpuTime());
+		assertEquals(256, overridden.getMemory());
+		assertEquals(8, overridden.getOpenFiles());
+	}
+}
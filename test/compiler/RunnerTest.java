@@ -0,0 +1,53 @@
+package compiler;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RunnerTest {
+	private final Runner runner = new Runner("java", 100, Long.MAX_VALUE);
+	private File dir;
+
+	public static class IgnoreInput {
+		public static void main(String[] args) throws Exception {
+			Thread.sleep(500);
+			System.out.println("done");
+		}
+	}
+
+	@Before
+	public void before() throws Exception {
+		dir = Files.createTempDirectory("scratchpad").toFile();
+	}
+
+	@After
+	public void after() {
+		Workspace.delete(dir);
+	}
+
+	@Test(timeout = 30000)
+	public void unreadInput() throws Exception {
+		Process process = runner.start(dir, IgnoreInput.class.getName(), Classpath.getScratchPadClasspath());
+
+		// More input than a pipe buffers, which the program never reads.
+		OutputStream input = process.getOutputStream();
+		input.write(new byte[1024 * 1024]);
+		input.close();
+
+		assertEquals("done\n", IOUtils.toString(process.getInputStream(), StandardCharsets.UTF_8));
+		assertEquals(0, process.waitFor());
+
+		// The JVM is still reading requests, so it can be used for the next run.
+		process = runner.start(dir, IgnoreInput.class.getName(), Classpath.getScratchPadClasspath());
+		assertEquals("done\n", IOUtils.toString(process.getInputStream(), StandardCharsets.UTF_8));
+		assertEquals(0, process.waitFor());
+	}
+}
@@ -0,0 +1,38 @@
+package compiler;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class SourceScannerTest {
+	private final SourceScanner java = new SourceScanner(new CommentSyntax("//", "/*", "*/"));
+	private final SourceScanner python = new SourceScanner(new CommentSyntax("#", null, null));
+
+	@Test
+	public void directives() {
+		SourceScanner.Scan scan = java.scan("// DEP: a\n/* DEP: b */\n// LIMIT: wallTime=5\n// Not a directive\n// DEP: c");
+		assertEquals(Arrays.asList("a", "c"), scan.getDirectives("DEP"));
+		assertEquals(Arrays.asList("wallTime=5"), scan.getDirectives("LIMIT"));
+		assertEquals(Arrays.asList(), scan.getDirectives("CASE"));
+	}
+
+	@Test
+	public void skipStrings() {
+		assertEquals(Arrays.asList("b"), python.scan("s = '''\n# DEP: a\n'''\n# DEP: b").getDirectives("DEP"));
+		assertEquals(Arrays.asList("b"), python.scan("s = \"# DEP: a\"\n# DEP: b").getDirectives("DEP"));
+
+		// An unterminated string ends at the end of its line.
+		assertEquals(Arrays.asList("b"), python.scan("s = \"unterminated\n# DEP: b").getDirectives("DEP"));
+	}
+
+	@Test
+	public void mainType() {
+		assertEquals("A", java.scan("public class A { public static void main(String[] args) {} }").getMainType());
+		assertEquals("B", java.scan("class A { public static void main(String[] args) {} }\npublic final class B<T> extends A {\n\tpublic static void main(String... args) {}\n}").getMainType());
+		assertEquals("C", java.scan("public record C(int x) { public static void main(String[] args) {} }").getMainType());
+		assertNull(java.scan("class A { public static void main(String[] args) {} }").getMainType());
+		assertNull(java.scan("public class A { public void main(String[] args) {} }").getMainType());
+	}
+}
@@ -0,0 +1,54 @@
+package compiler;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class StatisticsTest {
+	private static final double DELTA = 1e-9;
+	
+	@Test
+	public void summary() {
+		Statistics statistics = new Statistics(Arrays.asList(4.0, 1.0, 3.0, 2.0, 5.0));
+		
+		assertEquals(5, statistics.getCount());
+		assertEquals(1.0, statistics.getMin(), DELTA);
+		assertEquals(5.0, statistics.getMax(), DELTA);
+		assertEquals(3.0, statistics.getMean(), DELTA);
+		assertEquals(3.0, statistics.getMedian(), DELTA);
+		assertEquals(Math.sqrt(2.5), statistics.getStandardDeviation(), DELTA);
+	}
+	
+	@Test
+	public void percentilesInterpolate() {
+		Statistics statistics = new Statistics(Arrays.asList(10.0, 20.0, 30.0, 40.0));
+		
+		assertEquals(25.0, statistics.getMedian(), DELTA);
+		assertEquals(37.0, statistics.getPercentile(90), DELTA);
+		assertEquals(10.0, statistics.getPercentile(0), DELTA);
+		assertEquals(40.0, statistics.getPercentile(100), DELTA);
+	}
+	
+	@Test
+	public void withoutOutliers() {
+		Statistics statistics = new Statistics(Arrays.asList(10.0, 11.0, 12.0, 11.0, 10.0, 100.0, 12.0, 0.0)).withoutOutliers();
+		
+		assertEquals(6, statistics.getCount());
+		assertEquals(10.0, statistics.getMin(), DELTA);
+		assertEquals(12.0, statistics.getMax(), DELTA);
+	}
+	
+	@Test
+	public void empty() {
+		Statistics statistics = new Statistics(Collections.<Double>emptyList());
+		
+		assertEquals(0, statistics.getCount());
+		assertTrue(Double.isNaN(statistics.getMean()));
+		assertTrue(Double.isNaN(statistics.getPercentile(99)));
+		assertTrue(Double.isNaN(statistics.getStandardDeviation()));
+		assertEquals(0, statistics.withoutOutliers().getCount());
+	}
+}
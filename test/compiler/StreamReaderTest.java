@@ -0,0 +1,88 @@
+package compiler;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class StreamReaderTest {
+	private static class ListAppender implements Appender {
+		private final List<String> chunks = new ArrayList<>();
+
+		public void append(String s) {
+			chunks.add(s);
+		}
+
+		public void close() {
+		}
+
+		public String getText() {
+			return String.join("", chunks);
+		}
+	}
+
+	/**
+	 * Returns the bytes from an array one at a time, to split multi-byte characters across reads.
+	 */
+	private static class SlowInputStream extends InputStream {
+		private final byte[] bytes;
+		private int position = 0;
+
+		public SlowInputStream(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		public int read() {
+			return (position < bytes.length) ? (bytes[position++] & 0xff) : -1;
+		}
+
+		public int read(byte[] b, int offset, int length) {
+			if(position >= bytes.length) return -1;
+			b[offset] = bytes[position++];
+			return 1;
+		}
+	}
+
+	@Test
+	public void withoutNewline() {
+		assertEquals("progress 50%", read("progress 50%".getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	public void multiByteSplitAcrossReads() {
+		String text = "h\u00e9llo \u4e16\u754c \ud83d\ude00\n";
+		ListAppender out = new ListAppender();
+		new StreamReader(new SlowInputStream(text.getBytes(StandardCharsets.UTF_8)), out, new ListAppender()).run();
+		assertEquals(text, out.getText());
+	}
+
+	@Test
+	public void longLine() {
+		StringBuilder text = new StringBuilder();
+		for(int i = 0; i < 100000; i++) {
+			text.append("\u00e9");
+		}
+
+		ListAppender out = new ListAppender();
+		new StreamReader(new ByteArrayInputStream(text.toString().getBytes(StandardCharsets.UTF_8)), out, new ListAppender()).run();
+		assertEquals(text.toString(), out.getText());
+		assertTrue(out.chunks.size() > 1);
+	}
+
+	@Test
+	public void invalidBytes() {
+		byte[] bytes = { 'a', (byte) 0xff, 'b', (byte) 0xc3 };
+		assertEquals("a\ufffdb\ufffd", read(bytes));
+	}
+
+	private static String read(byte[] bytes) {
+		ListAppender out = new ListAppender();
+		new StreamReader(new ByteArrayInputStream(bytes), out, new ListAppender()).run();
+		return out.getText();
+	}
+}
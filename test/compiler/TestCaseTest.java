@@ -0,0 +1,66 @@
+package compiler;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestCaseTest {
+	@Test
+	public void parse() {
+		List<TestCase> cases = TestCase.parse("notes\n=== small\n1 2\n---\n3\n===\n4\n5\n---\n9\n");
+		
+		assertEquals(2, cases.size());
+		assertEquals("small", cases.get(0).getName());
+		assertEquals("1 2\n", cases.get(0).getInput());
+		assertEquals("3\n", cases.get(0).getExpected());
+		assertEquals("2", cases.get(1).getName());
+		assertEquals("4\n5\n", cases.get(1).getInput());
+	}
+	
+	@Test
+	public void parseDirectives() {
+		List<TestCase> cases = TestCase.parseDirectives("// CASE one: 1 2 => 3\nint x;\n# CASE: a\\nb => b\\na\n");
+		
+		assertEquals(2, cases.size());
+		assertEquals("one", cases.get(0).getName());
+		assertEquals("1 2\n", cases.get(0).getInput());
+		assertEquals("3\n", cases.get(0).getExpected());
+		assertEquals("line 3", cases.get(1).getName());
+		assertEquals("a\nb\n", cases.get(1).getInput());
+		assertEquals("b\na\n", cases.get(1).getExpected());
+	}
+	
+	@Test
+	public void matchesIgnoringTrailingWhitespace() {
+		TestCase testCase = new TestCase("a", "", "1 2\n3\n");
+		
+		assertTrue(testCase.matches("1 2  \r\n3"));
+		assertTrue(testCase.matches("1 2\n3\n\n"));
+		assertFalse(testCase.matches("1  2\n3\n"));
+	}
+	
+	@Test
+	public void diff() {
+		assertEquals(" a\n-b\n+x\n c\n", TestCase.diff("a\nb\nc\n", "a\nx\nc\n"));
+		assertEquals(" a\n+b\n", TestCase.diff("a", "a\nb"));
+	}
+	
+	@Test
+	public void formatResults() {
+		TestCase passing = new TestCase("passing", "", "1\n");
+		TestCase failing = new TestCase("failing", "", "1\n");
+		
+		String table = TestCase.formatResults(Arrays.asList(
+			new TestCase.Result(passing, "1\n", "", 0, 12, 2048),
+			new TestCase.Result(failing, "2\n", "", 0, 5, -1)
+		));
+		
+		assertTrue(table.contains("passing  PASS        12ms       2MB\n"));
+		assertTrue(table.contains("failing  FAIL         5ms         -\n"));
+		assertTrue(table.contains("1 of 2 passed\n"));
+		assertTrue(table.contains("-1\n+2\n"));
+	}
+}
@@ -0,0 +1,87 @@
+package compiler;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class WorkspaceTest {
+	@Test
+	public void removeRunFilesBetweenRuns() throws Exception {
+		File baseDir = Files.createTempDirectory("scratchpad").toFile();
+		try {
+			Workspace workspace = new Workspace(baseDir, "Test", "hs", 1024 * 1024, Arrays.asList("main"));
+
+			File dir = workspace.acquire();
+			new File(dir, "lib").mkdir();
+			new File(dir, "lib/old.jar").createNewFile();
+			new File(dir, "Main.hs").createNewFile();
+			new File(dir, "main").createNewFile();
+			new File(dir, "Main.hi").createNewFile();
+			new File(dir, "Main.o").createNewFile();
+			workspace.release(dir);
+
+			File next = reacquire(workspace, dir);
+			assertFalse(new File(next, "lib").exists());
+			assertFalse(new File(next, "Main.hs").exists());
+			assertFalse(new File(next, "main").exists());
+			assertTrue(new File(next, "Main.hi").exists());
+			assertTrue(new File(next, "Main.o").exists());
+			workspace.release(next);
+		} finally {
+			Workspace.delete(baseDir);
+		}
+	}
+
+	@Test
+	public void emptyOverMaxSize() throws Exception {
+		File baseDir = Files.createTempDirectory("scratchpad").toFile();
+		try {
+			Workspace workspace = new Workspace(baseDir, "Test", "hs", 10, Arrays.asList("main"));
+
+			File dir = workspace.acquire();
+			Files.write(new File(dir, "Main.hi").toPath(), new byte[100]);
+			workspace.release(dir);
+
+			File next = reacquire(workspace, dir);
+			assertEquals(0, next.list().length);
+			workspace.release(next);
+		} finally {
+			Workspace.delete(baseDir);
+		}
+	}
+
+	@Test
+	public void cleanLeftoverDirectory() throws Exception {
+		File baseDir = Files.createTempDirectory("scratchpad").toFile();
+		try {
+			File leftover = new File(baseDir, "scratchpad-Test/0");
+			leftover.mkdirs();
+			new File(leftover, "Main.hs").createNewFile();
+			new File(leftover, "Main.hi").createNewFile();
+
+			File dir = new Workspace(baseDir, "Test", "hs", 1024 * 1024, Arrays.asList("main")).acquire();
+			assertEquals(leftover, dir);
+			assertEquals(Arrays.asList("Main.hi"), Arrays.asList(dir.list()));
+		} finally {
+			Workspace.delete(baseDir);
+		}
+	}
+
+	/**
+	 * Acquires a released directory again, which stays locked until it has been cleaned in the background.
+	 */
+	private static File reacquire(Workspace workspace, File dir) throws Exception {
+		File next = workspace.acquire();
+		for(int i = 0; i < 100 && !next.equals(dir); i++) {
+			workspace.release(next);
+			Thread.sleep(50);
+			next = workspace.acquire();
+		}
+		assertEquals(dir, next);
+		return next;
+	}
+}
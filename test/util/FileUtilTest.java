@@ -0,0 +1,53 @@
+package util;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileUtilTest {
+	private File file;
+	
+	@Before
+	public void before() throws IOException {
+		file = File.createTempFile("FileUtilTest", ".txt");
+	}
+	
+	@After
+	public void after() {
+		file.delete();
+	}
+	
+	@Test
+	public void countLines() throws IOException {
+		assertEquals(0, FileUtil.countLines(file));
+		
+		FileUtils.write(file, "a\nb\n", StandardCharsets.UTF_8);
+		assertEquals(2, FileUtil.countLines(file));
+		
+		FileUtils.write(file, "a\nb", StandardCharsets.UTF_8);
+		assertEquals(2, FileUtil.countLines(file));
+	}
+	
+	@Test
+	public void readHead() throws IOException {
+		FileUtils.write(file, "1\n2\n3\n4\n", StandardCharsets.UTF_8);
+		
+		assertEquals("1\n2\n", FileUtil.readHead(file, 2, 100));
+		assertEquals("1\n2\n3\n4\n", FileUtil.readHead(file, 10, 100));
+		assertEquals("1\n2", FileUtil.readHead(file, 10, 3));
+	}
+	
+	@Test
+	public void formatSize() {
+		assertEquals("100 bytes", FileUtil.formatSize(100));
+		assertEquals("1.5 KB", FileUtil.formatSize(1536));
+		assertEquals("200.0 MB", FileUtil.formatSize(200L * 1024 * 1024));
+	}
+}